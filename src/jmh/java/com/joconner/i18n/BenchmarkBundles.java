@@ -0,0 +1,171 @@
+package com.joconner.i18n;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.ResourceBundle;
+
+/**
+ * Generates bundle trees for the benchmarks. Every tree contains the base name "bench.Messages" in the root
+ * locale, in French, and in Canadian French. The root bundle has every key, the French bundle has every
+ * second key, and the Canadian French bundle has every tenth key, so lookups in fr-CA exercise the whole
+ * fallback chain.
+ *
+ * @author joconner
+ */
+final class BenchmarkBundles {
+
+    static final String BASE_NAME = "bench.Messages";
+    static final Locale CANADIAN_FRENCH = Locale.CANADA_FRENCH;
+
+    /**
+     * Key 0 is translated in fr-CA, key 1 only exists in the root bundle.
+     */
+    static final String KEY_OWN = key(0);
+    static final String KEY_ROOT = key(1);
+    static final String KEY_MISSING = "MISSING_KEY";
+
+    private BenchmarkBundles() {
+    }
+
+    static String key(int index) {
+        return "KEY_" + index;
+    }
+
+    static String value(int index, String language) {
+        return "Value " + index + " in " + language + " with {0} placeholder";
+    }
+
+    /**
+     * Returns the text of a JSON bundle that contains every step-th key.
+     */
+    static String json(int keyCount, int step, String language) {
+        StringBuilder builder = new StringBuilder("{\n");
+        for (int x = 0; x < keyCount; x += step) {
+            if (x > 0) {
+                builder.append(",\n");
+            }
+            builder.append("  \"").append(key(x)).append("\": ");
+            if (x % 3 == 0) {
+                builder.append("{\"value\": \"").append(value(x, language))
+                        .append("\", \"@meta\": {\"maxLength\": 80, \"tone\": \"casual\"}}");
+            } else {
+                builder.append('"').append(value(x, language)).append('"');
+            }
+        }
+        return builder.append("\n}\n").toString();
+    }
+
+    /**
+     * Returns the text of a properties bundle that contains every step-th key.
+     */
+    static String properties(int keyCount, int step, String language) {
+        StringBuilder builder = new StringBuilder("# Generated benchmark bundle\n");
+        for (int x = 0; x < keyCount; x += step) {
+            builder.append(key(x)).append('=').append(value(x, language)).append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Writes a package-based tree of JSON bundles.
+     */
+    static Path jsonTree(int keyCount) throws IOException {
+        Path root = Files.createTempDirectory("bench-json");
+        write(root.resolve("bench/Messages.json"), json(keyCount, 1, "en"));
+        write(root.resolve("bench/fr/Messages.json"), json(keyCount, 2, "fr"));
+        write(root.resolve("bench/fr-ca/Messages.json"), json(keyCount, 10, "fr-CA"));
+        return root;
+    }
+
+    /**
+     * Writes a package-based tree of properties bundles.
+     */
+    static Path propertiesTree(int keyCount) throws IOException {
+        Path root = Files.createTempDirectory("bench-properties");
+        write(root.resolve("bench/Messages.properties"), properties(keyCount, 1, "en"));
+        write(root.resolve("bench/fr/Messages.properties"), properties(keyCount, 2, "fr"));
+        write(root.resolve("bench/fr-ca/Messages.properties"), properties(keyCount, 10, "fr-CA"));
+        return root;
+    }
+
+    /**
+     * Writes a tree of properties bundles in the JDK's default naming scheme.
+     */
+    static Path defaultTree(int keyCount) throws IOException {
+        Path root = Files.createTempDirectory("bench-default");
+        write(root.resolve("bench/Messages.properties"), properties(keyCount, 1, "en"));
+        write(root.resolve("bench/Messages_fr.properties"), properties(keyCount, 2, "fr"));
+        write(root.resolve("bench/Messages_fr_CA.properties"), properties(keyCount, 10, "fr-CA"));
+        return root;
+    }
+
+    /**
+     * The controls compared by the benchmarks, with the tree that each of them reads.
+     */
+    enum Kind {
+        JSON {
+            @Override
+            ResourceBundle.Control control() {
+                return new JsonResourceBundleControl(true);
+            }
+
+            @Override
+            Path tree(int keyCount) throws IOException {
+                return jsonTree(keyCount);
+            }
+        },
+        JSON_FLAT {
+            @Override
+            ResourceBundle.Control control() {
+                JsonResourceBundleControl control = new JsonResourceBundleControl(true);
+                control.setFlattenFallbacks(true);
+                return control;
+            }
+
+            @Override
+            Path tree(int keyCount) throws IOException {
+                return jsonTree(keyCount);
+            }
+        },
+        UTF8 {
+            @Override
+            ResourceBundle.Control control() {
+                return new Utf8ResourceBundleControl(true);
+            }
+
+            @Override
+            Path tree(int keyCount) throws IOException {
+                return propertiesTree(keyCount);
+            }
+        },
+        DEFAULT {
+            @Override
+            ResourceBundle.Control control() {
+                return ResourceBundle.Control.getControl(ResourceBundle.Control.FORMAT_DEFAULT);
+            }
+
+            @Override
+            Path tree(int keyCount) throws IOException {
+                return defaultTree(keyCount);
+            }
+        };
+
+        abstract ResourceBundle.Control control();
+
+        abstract Path tree(int keyCount) throws IOException;
+    }
+
+    static ClassLoader loaderFor(Path root) throws IOException {
+        return new URLClassLoader(new URL[]{root.toUri().toURL()}, null);
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
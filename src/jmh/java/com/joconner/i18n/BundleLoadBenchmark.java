@@ -0,0 +1,65 @@
+package com.joconner.i18n;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures ResourceBundle.getBundle with each control, both cold, with an empty ResourceBundle cache, and
+ * warm, when the bundle chain is already cached.
+ *
+ * @author joconner
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BundleLoadBenchmark {
+
+    @Param({"JSON", "UTF8", "DEFAULT"})
+    String format;
+
+    @Param({"100", "10000"})
+    int keyCount;
+
+    ResourceBundle.Control control;
+    ClassLoader loader;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkBundles.Kind kind = BenchmarkBundles.Kind.valueOf(format);
+        control = kind.control();
+        loader = BenchmarkBundles.loaderFor(kind.tree(keyCount));
+    }
+
+    /**
+     * Clears the cache before every invocation of the cold benchmark. The warm benchmark doesn't use this
+     * state, so its cache stays populated.
+     */
+    @State(Scope.Thread)
+    public static class ColdCache {
+        @Setup(Level.Invocation)
+        public void clear(BundleLoadBenchmark benchmark) {
+            ResourceBundle.clearCache(benchmark.loader);
+        }
+    }
+
+    @Benchmark
+    public ResourceBundle coldGetBundle(ColdCache cache) {
+        return ResourceBundle.getBundle(BenchmarkBundles.BASE_NAME, BenchmarkBundles.CANADIAN_FRENCH, loader, control);
+    }
+
+    @Benchmark
+    public ResourceBundle warmGetBundle() {
+        return ResourceBundle.getBundle(BenchmarkBundles.BASE_NAME, BenchmarkBundles.CANADIAN_FRENCH, loader, control);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public ResourceBundle contendedWarmGetBundle() {
+        return ResourceBundle.getBundle(BenchmarkBundles.BASE_NAME, BenchmarkBundles.CANADIAN_FRENCH, loader, control);
+    }
+}
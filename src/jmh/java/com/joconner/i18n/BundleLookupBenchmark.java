@@ -0,0 +1,118 @@
+package com.joconner.i18n;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Enumeration;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures lookups in a cached fr-CA bundle: keys found in the bundle itself, keys found at the end of the
+ * fallback chain, missing keys, and key enumeration. The contended variants run the same lookups from as
+ * many threads as there are processors. JSON_FLAT looks up in JSON bundles whose fallback chains are
+ * flattened. The batch variants look up the keys of one fragment one at a time with getString, and all
+ * at once with IndexedResourceBundle.resolve.
+ *
+ * @author joconner
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BundleLookupBenchmark {
+
+    @Param({"JSON", "JSON_FLAT", "UTF8", "DEFAULT"})
+    String format;
+
+    /**
+     * The keys of one rendered fragment: keys of the bundle itself, keys of its parents, and missing keys.
+     */
+    private static final String[] BATCH_KEYS = new String[24];
+
+    static {
+        for (int x = 0; x < BATCH_KEYS.length; x++) {
+            BATCH_KEYS[x] = x % 8 == 7 ? BenchmarkBundles.KEY_MISSING + x : BenchmarkBundles.key(x * 3);
+        }
+    }
+
+    @Param({"1000"})
+    int keyCount;
+
+    ResourceBundle bundle;
+    String[] batchValues = new String[BATCH_KEYS.length];
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkBundles.Kind kind = BenchmarkBundles.Kind.valueOf(format);
+        ClassLoader loader = BenchmarkBundles.loaderFor(kind.tree(keyCount));
+        bundle = ResourceBundle.getBundle(BenchmarkBundles.BASE_NAME, BenchmarkBundles.CANADIAN_FRENCH,
+                loader, kind.control());
+    }
+
+    @Benchmark
+    public String getStringHit() {
+        return bundle.getString(BenchmarkBundles.KEY_OWN);
+    }
+
+    @Benchmark
+    public String getStringParentHit() {
+        return bundle.getString(BenchmarkBundles.KEY_ROOT);
+    }
+
+    @Benchmark
+    public String getStringMiss() {
+        try {
+            return bundle.getString(BenchmarkBundles.KEY_MISSING);
+        } catch (MissingResourceException e) {
+            return null;
+        }
+    }
+
+    @Benchmark
+    public String[] getStringBatch() {
+        String[] values = batchValues;
+        for (int x = 0; x < BATCH_KEYS.length; x++) {
+            try {
+                values[x] = bundle.getString(BATCH_KEYS[x]);
+            } catch (MissingResourceException e) {
+                values[x] = null;
+            }
+        }
+        return values;
+    }
+
+    @Benchmark
+    public String[] resolveBatch() {
+        if (!(bundle instanceof IndexedResourceBundle)) {
+            return getStringBatch();
+        }
+        ((IndexedResourceBundle) bundle).resolve(BATCH_KEYS, batchValues);
+        return batchValues;
+    }
+
+    @Benchmark
+    public int getKeys() {
+        int count = 0;
+        Enumeration<String> keys = bundle.getKeys();
+        while (keys.hasMoreElements()) {
+            keys.nextElement();
+            count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String contendedGetStringHit() {
+        return bundle.getString(BenchmarkBundles.KEY_OWN);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String contendedGetStringParentHit() {
+        return bundle.getString(BenchmarkBundles.KEY_ROOT);
+    }
+}
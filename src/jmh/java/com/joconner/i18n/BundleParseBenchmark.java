@@ -0,0 +1,86 @@
+package com.joconner.i18n;
+
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonObject;
+import com.eclipsesource.json.JsonValue;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PropertyResourceBundle;
+import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how fast large generated bundles are parsed from memory, without any class loader I/O.
+ * parseJsonDom is the tree-based parsing that JsonResourceBundle used before its streaming parser; run with
+ * -prof gc to compare the garbage that each produces.
+ *
+ * @author joconner
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BundleParseBenchmark {
+
+    @Param({"10000", "50000"})
+    int keyCount;
+
+    byte[] json;
+    byte[] properties;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        json = BenchmarkBundles.json(keyCount, 1, "en").getBytes(StandardCharsets.UTF_8);
+        properties = BenchmarkBundles.properties(keyCount, 1, "en").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public ResourceBundle parseJson() throws IOException {
+        return new JsonResourceBundle(new InputStreamReader(new ByteArrayInputStream(json), StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public void parseJsonDom(Blackhole blackhole) throws IOException {
+        JsonObject root = Json.parse(new InputStreamReader(new ByteArrayInputStream(json), StandardCharsets.UTF_8)).asObject();
+        Map<String, String> entries = new LinkedHashMap<>();
+        MetadataIndex.Builder metadata = new MetadataIndex.Builder();
+        for (JsonObject.Member member : root) {
+            JsonValue value = member.getValue();
+            String strValue = null;
+            if (value.isString()) {
+                strValue = value.asString();
+            } else if (value.isObject()) {
+                JsonObject valueObject = value.asObject();
+                strValue = valueObject.getString("value", null);
+                JsonValue meta = valueObject.get("@meta");
+                if (strValue != null && meta != null && meta.isObject()) {
+                    metadata.add(member.getName(), meta.toString());
+                }
+            }
+            if (strValue != null) {
+                entries.put(member.getName(), strValue);
+            }
+        }
+        blackhole.consume(StringTable.of(entries));
+        blackhole.consume(metadata.build());
+    }
+
+    @Benchmark
+    public ResourceBundle parseProperties() throws IOException {
+        return new PropertyResourceBundle(new InputStreamReader(new ByteArrayInputStream(properties), StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public ResourceBundle parseUtf8Properties() throws IOException {
+        return new Utf8PropertiesResourceBundle(new ByteArrayInputStream(properties));
+    }
+}
@@ -0,0 +1,50 @@
+package com.joconner.i18n;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.StringReader;
+import java.text.MessageFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares formatting a bundle's message by parsing the pattern with MessageFormat on every call with
+ * formatting the pattern that the bundle compiled once, into a new String and into a reused StringBuilder.
+ *
+ * @author joconner
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageFormatBenchmark {
+
+    private static final String KEY = "FILES";
+
+    JsonResourceBundle bundle;
+    Object[] arguments = {"Documents", 1200};
+    StringBuilder target = new StringBuilder();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        bundle = new JsonResourceBundle(new StringReader("{\"" + KEY + "\": "
+                + "\"The folder {0} contains {1,number,integer} files.\"}"));
+    }
+
+    @Benchmark
+    public String messageFormat() {
+        return MessageFormat.format(bundle.getString(KEY), arguments);
+    }
+
+    @Benchmark
+    public String compiledFormat() {
+        return bundle.format(KEY, arguments);
+    }
+
+    @Benchmark
+    public StringBuilder compiledFormatInto() {
+        target.setLength(0);
+        return bundle.format(target, KEY, arguments);
+    }
+}
@@ -0,0 +1,237 @@
+package com.joconner.i18n;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.concurrent.*;
+
+/**
+ * AsyncBundleLoader is a non-blocking facade for ResourceBundle.getBundle. It loads bundles on an executor,
+ * so that threads of an event loop never wait for a class loader or a parser:
+ * <pre>
+ * AsyncBundleLoader bundles = new AsyncBundleLoader();
+ * bundles.getBundle("com.example.res.Foo", locale, control)
+ *         .thenAccept(bundle -&gt; respond(bundle.getString("GREETING")));
+ * </pre>
+ * Concurrent requests for the same base name, locale, class loader and control share one future and one
+ * load. Once a bundle is loaded, later requests get a completed future without going through the executor,
+ * as long as the control doesn't expire cached bundles; with a control that uses a time-to-live, such as a
+ * control in hot reload mode, every request is answered on the executor so that reloads never block the
+ * caller.
+ * <p>
+ * The loader refers to loaded bundles softly and to the class loaders and controls of its requests weakly,
+ * so it never keeps a class loader from being unloaded, and forgets a bundle once the bundle, its class
+ * loader or its control is collected.
+ * <p>
+ * Without an executor of its own, the loader uses a shared executor that runs each load in a virtual
+ * thread if the JDK has virtual threads, and otherwise in a pool of daemon threads.
+ *
+ * @author joconner
+ */
+public class AsyncBundleLoader {
+
+    private final Executor executor;
+    private final ConcurrentMap<Key, CompletableFuture<ResourceBundle>> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Key, BundleReference> loaded = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+
+    /**
+     * Creates a loader that uses the shared default executor.
+     */
+    public AsyncBundleLoader() {
+        this(DefaultExecutor.INSTANCE);
+    }
+
+    /**
+     * Creates a loader that loads bundles on the given executor.
+     */
+    public AsyncBundleLoader(Executor executor) {
+        if (executor == null) {
+            throw new NullPointerException("Executor is null.");
+        }
+        this.executor = executor;
+    }
+
+    /**
+     * Loads a bundle with the context class loader of the calling thread, or with the class loader of
+     * this class if the thread has none.
+     */
+    public CompletableFuture<ResourceBundle> getBundle(String baseName, Locale locale, ResourceBundle.Control control) {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        return getBundle(baseName, locale, loader == null ? AsyncBundleLoader.class.getClassLoader() : loader,
+                control);
+    }
+
+    /**
+     * Loads a bundle as ResourceBundle.getBundle(baseName, locale, loader, control) would. The future
+     * completes exceptionally with a MissingResourceException if there is no bundle.
+     */
+    public CompletableFuture<ResourceBundle> getBundle(final String baseName, final Locale locale,
+                                                       final ClassLoader loader,
+                                                       final ResourceBundle.Control control) {
+        if (baseName == null || locale == null || loader == null || control == null) {
+            throw new NullPointerException();
+        }
+        purge();
+        final Key key = new Key(baseName, locale, loader, control, queue);
+        BundleReference reference = loaded.get(key);
+        ResourceBundle bundle = reference == null ? null : reference.get();
+        if (bundle != null) {
+            return CompletableFuture.completedFuture(bundle);
+        }
+        CompletableFuture<ResourceBundle> future = inFlight.get(key);
+        if (future != null) {
+            return future;
+        }
+        final CompletableFuture<ResourceBundle> created = new CompletableFuture<>();
+        future = inFlight.putIfAbsent(key, created);
+        if (future != null) {
+            return future;
+        }
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    load(key, loader, control, created);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, created);
+            created.completeExceptionally(e);
+        }
+        return created;
+    }
+
+    /**
+     * Forgets the bundles that were loaded, so that the next requests ask ResourceBundle.getBundle again.
+     */
+    public void clear() {
+        loaded.clear();
+    }
+
+    /**
+     * Returns the number of loaded bundles that the loader still refers to.
+     */
+    int loadedCount() {
+        purge();
+        return loaded.size();
+    }
+
+    private void load(Key key, ClassLoader loader, ResourceBundle.Control control,
+                      CompletableFuture<ResourceBundle> future) {
+        ResourceBundle bundle;
+        try {
+            bundle = ResourceBundle.getBundle(key.baseName, key.locale, loader, control);
+        } catch (Throwable t) {
+            inFlight.remove(key, future);
+            future.completeExceptionally(t);
+            return;
+        }
+        if (control.getTimeToLive(key.baseName, key.locale) == ResourceBundle.Control.TTL_NO_EXPIRATION_CONTROL) {
+            loaded.put(key, new BundleReference(bundle, key, queue));
+        }
+        inFlight.remove(key, future);
+        future.complete(bundle);
+    }
+
+    /**
+     * Removes the loaded bundles whose bundle, class loader or control was collected.
+     */
+    private void purge() {
+        Reference<?> reference;
+        while ((reference = queue.poll()) != null) {
+            if (reference instanceof BundleReference) {
+                loaded.remove(((BundleReference) reference).key, reference);
+            } else {
+                loaded.remove(((KeyReference<?>) reference).key);
+            }
+        }
+    }
+
+    /**
+     * Holds the shared default executor, which is created when a loader first needs it.
+     */
+    private static final class DefaultExecutor {
+        static final Executor INSTANCE = create();
+
+        private static Executor create() {
+            try {
+                // Executors.newVirtualThreadPerTaskExecutor exists on JDK 21 and later.
+                return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                return Executors.newCachedThreadPool(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "enhanced-resources-loader");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            }
+        }
+    }
+
+    private static final class BundleReference extends SoftReference<ResourceBundle> {
+        final Key key;
+
+        BundleReference(ResourceBundle bundle, Key key, ReferenceQueue<Object> queue) {
+            super(bundle, queue);
+            this.key = key;
+        }
+    }
+
+    private static final class KeyReference<T> extends WeakReference<T> {
+        final Key key;
+
+        KeyReference(T referent, Key key, ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.key = key;
+        }
+    }
+
+    /**
+     * The key of a request. A key refers to its class loader and control weakly; a key whose class loader
+     * or control was collected is only equal to itself.
+     */
+    private static final class Key {
+        final String baseName;
+        final Locale locale;
+        final KeyReference<ClassLoader> loader;
+        final KeyReference<ResourceBundle.Control> control;
+        final int hash;
+
+        Key(String baseName, Locale locale, ClassLoader loader, ResourceBundle.Control control,
+            ReferenceQueue<Object> queue) {
+            this.baseName = baseName;
+            this.locale = locale;
+            this.loader = new KeyReference<>(loader, this, queue);
+            this.control = new KeyReference<>(control, this, queue);
+            hash = ((baseName.hashCode() * 31 + locale.hashCode()) * 31 + System.identityHashCode(loader)) * 31 +
+                    System.identityHashCode(control);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            ClassLoader classLoader = loader.get();
+            ResourceBundle.Control bundleControl = control.get();
+            return classLoader != null && bundleControl != null && classLoader == other.loader.get() &&
+                    bundleControl == other.control.get() && baseName.equals(other.baseName) &&
+                    locale.equals(other.locale);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,438 @@
+package com.joconner.i18n;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * BundleCache is a size-bounded cache of loaded bundles that replaces the soft-reference cache of
+ * ResourceBundle.getBundle for the controls of this package. Give a cache to one or more controls with
+ * setBundleCache; the controls then tell ResourceBundle.getBundle not to cache their bundles, and serve
+ * every bundle of a fallback chain from this cache instead:
+ * <pre>
+ * BundleCache cache = new BundleCache(32 * 1024 * 1024);
+ * cache.pin(Locale.ENGLISH);
+ * JsonResourceBundleControl control = new JsonResourceBundleControl(true);
+ * control.setBundleCache(cache);
+ * ResourceBundle bundle = ResourceBundle.getBundle("com.example.res.Foo", locale, control);
+ * </pre>
+ * Each bundle is weighed when it's loaded by estimating the heap size of its own keys and values. When
+ * the total weight exceeds the maximum weight, bundles are evicted in second-chance (CLOCK) order, which
+ * approximates least recently used: bundles are queued in the order they were added, and a bundle that
+ * was served since it was queued is queued again instead of being evicted. Serving a bundle only sets a
+ * flag, so lookups never wait for the queue. Because a
+ * bundle holds a reference to its parent, evicting a bundle also evicts the cached bundles that have it
+ * in their fallback chain, so that the weight of the cache is the weight of the bundles it keeps
+ * reachable.
+ * <p>
+ * Bundles of pinned locales and the bundles of their fallback chains are never evicted. The cache may
+ * exceed its maximum weight if pinned bundles, or the chain of the bundle that is being loaded, don't
+ * fit.
+ *
+ * @author joconner
+ */
+public class BundleCache {
+
+    private final long maximumWeight;
+    private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    /** The entries from least to most recently queued, guarded by this cache. */
+    private final LinkedHashMap<Key, Entry> order = new LinkedHashMap<>();
+    /** The number of entries that eviction looked at, guarded by this cache. */
+    private long visited;
+    /** The cached entries that have a key in their fallback chain, guarded by this cache. */
+    private final Map<Key, Set<Entry>> dependents = new HashMap<>();
+    private final Set<Locale> pinnedLocales = Collections.newSetFromMap(new ConcurrentHashMap<Locale, Boolean>());
+    private final AtomicLong weight = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder evictedWeight = new LongAdder();
+
+    /**
+     * Creates a cache that evicts bundles when their estimated total size exceeds maximumWeight bytes.
+     */
+    public BundleCache(long maximumWeight) {
+        if (maximumWeight < 0) {
+            throw new IllegalArgumentException("The maximum weight is negative.");
+        }
+        this.maximumWeight = maximumWeight;
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    /**
+     * Returns the estimated size in bytes of the cached bundles.
+     */
+    public long getWeight() {
+        return weight.get();
+    }
+
+    /**
+     * Returns the number of cached bundles.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Keeps the bundles of a locale and of its fallback chain in the cache. For example, pinning fr-CA
+     * keeps the fr-CA, fr and root bundles of every base name.
+     */
+    public void pin(Locale locale) {
+        pinnedLocales.add(locale);
+    }
+
+    /**
+     * Lets the bundles of a pinned locale be evicted again.
+     */
+    public void unpin(Locale locale) {
+        pinnedLocales.remove(locale);
+        synchronized (this) {
+            evict(Collections.<Entry>emptySet());
+        }
+    }
+
+    public Set<Locale> getPinnedLocales() {
+        return Collections.unmodifiableSet(pinnedLocales);
+    }
+
+    /**
+     * Removes every bundle from the cache. Eviction statistics aren't changed.
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+        order.clear();
+        dependents.clear();
+        weight.set(0);
+    }
+
+    public Statistics getStatistics() {
+        return new Statistics(hits.sum(), misses.sum(), evictions.sum(), evictedWeight.sum(), weight.get(),
+                entries.size());
+    }
+
+    /**
+     * Returns the cached entry of a bundle, or returns null. The entry isn't counted as a hit until the
+     * control serves it.
+     */
+    Entry get(PackageableResourceControl control, String baseName, Locale locale, ClassLoader loader) {
+        return entries.get(new Key(control, baseName, locale, loader));
+    }
+
+    /**
+     * Counts a hit for an entry that a control serves and marks it as recently used.
+     */
+    void served(Entry entry) {
+        if (!entry.accessed) {
+            entry.accessed = true;
+        }
+        hits.increment();
+    }
+
+    /**
+     * Caches a bundle that a control loaded and evicts bundles until the cache fits its maximum
+     * weight again, if it can. If another thread cached the same bundle first, that bundle is kept.
+     *
+     * @param loadTime the time in milliseconds when loading started
+     * @return the cached bundle
+     */
+    ResourceBundle put(PackageableResourceControl control, String baseName, Locale locale, ClassLoader loader,
+                       String format, long loadTime, ResourceBundle bundle) {
+        Key key = new Key(control, baseName, locale, loader);
+        Entry previous = entries.get(key);
+        if (previous != null) {
+            return previous.bundle;
+        }
+        Entry entry = new Entry(key, format, loadTime, bundle, weigh(bundle), ancestorKeysOf(key));
+        synchronized (this) {
+            previous = entries.get(key);
+            if (previous != null) {
+                return previous.bundle;
+            }
+            misses.increment();
+            entries.put(key, entry);
+            order.put(key, entry);
+            weight.addAndGet(entry.weight);
+            Set<Entry> inUse = new HashSet<>();
+            inUse.add(entry);
+            for (Key ancestor : entry.ancestorKeys) {
+                Set<Entry> descendants = dependents.get(ancestor);
+                if (descendants == null) {
+                    descendants = new HashSet<>();
+                    dependents.put(ancestor, descendants);
+                }
+                descendants.add(entry);
+                Entry cached = entries.get(ancestor);
+                if (cached != null) {
+                    inUse.add(cached);
+                }
+            }
+            evict(inUse);
+        }
+        return bundle;
+    }
+
+    /**
+     * Removes a bundle and the cached bundles that have it in their fallback chain, for example because
+     * the bundle's file changed.
+     */
+    synchronized void invalidate(Entry entry) {
+        remove(entry, false);
+    }
+
+    private void remove(Entry entry, boolean evicted) {
+        if (!entries.remove(entry.key, entry)) {
+            return;
+        }
+        order.remove(entry.key);
+        weight.addAndGet(-entry.weight);
+        if (evicted) {
+            evictions.increment();
+            evictedWeight.add(entry.weight);
+        }
+        for (Key ancestor : entry.ancestorKeys) {
+            Set<Entry> descendants = dependents.get(ancestor);
+            if (descendants != null) {
+                descendants.remove(entry);
+                if (descendants.isEmpty()) {
+                    dependents.remove(ancestor);
+                }
+            }
+        }
+        Set<Entry> descendants = dependents.get(entry.key);
+        if (descendants != null) {
+            for (Entry dependent : new ArrayList<>(descendants)) {
+                remove(dependent, evicted);
+            }
+        }
+    }
+
+    /**
+     * Evicts entries in second-chance order while the cache is too heavy. Pinned entries and the entries
+     * in use are never evicted.
+     */
+    private void evict(Set<Entry> inUse) {
+        while (weight.get() > maximumWeight) {
+            Entry victim = nextVictim(inUse, true);
+            if (victim == null) {
+                return;
+            }
+            remove(victim, true);
+        }
+    }
+
+    /**
+     * Returns the next entry to evict in second-chance order, or null if no entry may be evicted. The
+     * first entry of the queue that wasn't served since it was queued, and that isn't pinned or in use,
+     * is the victim; the entries before it are queued again at the end and lose their served flag. If
+     * every entry was served, one pass clears all flags and a second pass finds the victim, so finding a
+     * victim looks at no more than twice the number of entries, and clearing the flags makes the
+     * following victims cheap again.
+     */
+    private Entry nextVictim(Set<Entry> inUse, boolean retry) {
+        boolean served = false;
+        List<Entry> requeued = new ArrayList<>();
+        for (Entry entry : order.values()) {
+            visited++;
+            if (entry.accessed) {
+                served = true;
+                requeued.add(entry);
+            } else if (inUse.contains(entry) || isPinned(entry)) {
+                requeued.add(entry);
+            } else {
+                requeue(requeued);
+                return entry;
+            }
+        }
+        requeue(requeued);
+        // Every entry was requeued; the entries that were served may be evicted now.
+        return served && retry ? nextVictim(inUse, false) : null;
+    }
+
+    /**
+     * Returns the number of entries that eviction has looked at.
+     */
+    synchronized long getVisited() {
+        return visited;
+    }
+
+    private void requeue(List<Entry> requeued) {
+        for (Entry entry : requeued) {
+            entry.accessed = false;
+            order.remove(entry.key);
+            order.put(entry.key, entry);
+        }
+    }
+
+    /**
+     * Returns true if an entry's locale is pinned or the entry is in the fallback chain of a cached
+     * bundle of a pinned locale.
+     */
+    private boolean isPinned(Entry entry) {
+        if (pinnedLocales.isEmpty()) {
+            return false;
+        }
+        if (pinnedLocales.contains(entry.key.locale)) {
+            return true;
+        }
+        Set<Entry> descendants = dependents.get(entry.key);
+        if (descendants != null) {
+            for (Entry dependent : descendants) {
+                if (pinnedLocales.contains(dependent.key.locale)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the keys of the parent locales of a bundle, whether or not their bundles are cached.
+     */
+    private static List<Key> ancestorKeysOf(Key key) {
+        List<Locale> candidates = key.control.getCandidateLocales(key.baseName, key.locale);
+        int index = candidates.indexOf(key.locale);
+        if (index < 0) {
+            return Collections.emptyList();
+        }
+        List<Key> ancestors = new ArrayList<>(candidates.size() - index - 1);
+        for (Locale candidate : candidates.subList(index + 1, candidates.size())) {
+            ancestors.add(new Key(key.control, key.baseName, candidate, key.loader));
+        }
+        return ancestors;
+    }
+
+    /**
+     * Estimates the heap size of a bundle's own keys and values. Bundles that aren't part of this package
+     * are estimated from all the keys they resolve, including the keys of their parents.
+     */
+    static long weigh(ResourceBundle bundle) {
+        if (bundle instanceof IndexedResourceBundle) {
+            return ((IndexedResourceBundle) bundle).estimatedSize();
+        }
+        long size = 64;
+        for (String key : bundle.keySet()) {
+            Object value = bundle.getObject(key);
+            size += 16 + StringPool.estimateSize(key) +
+                    (value instanceof String ? StringPool.estimateSize((String) value) : 64);
+        }
+        return size;
+    }
+
+    /**
+     * The statistics of a BundleCache at one point in time.
+     */
+    public static final class Statistics {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long evictedWeight;
+        private final long weight;
+        private final int size;
+
+        Statistics(long hits, long misses, long evictions, long evictedWeight, long weight, int size) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.evictedWeight = evictedWeight;
+            this.weight = weight;
+            this.size = size;
+        }
+
+        /**
+         * Returns the number of bundles that were served from the cache.
+         */
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * Returns the number of bundles that were loaded and added to the cache.
+         */
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * Returns the number of bundles that were evicted, including the bundles that were evicted
+         * because a bundle in their fallback chain was evicted.
+         */
+        public long getEvictions() {
+            return evictions;
+        }
+
+        /**
+         * Returns the estimated size in bytes of all evicted bundles.
+         */
+        public long getEvictedWeight() {
+            return evictedWeight;
+        }
+
+        public long getWeight() {
+            return weight;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        @Override
+        public String toString() {
+            return "hits=" + hits + ", misses=" + misses + ", evictions=" + evictions +
+                    ", evictedWeight=" + evictedWeight + ", weight=" + weight + ", size=" + size;
+        }
+    }
+
+    static final class Entry {
+        final Key key;
+        final String format;
+        final long loadTime;
+        final ResourceBundle bundle;
+        final long weight;
+        final List<Key> ancestorKeys;
+        /** Set when the entry is served, and cleared when the entry is queued again. */
+        volatile boolean accessed;
+
+        Entry(Key key, String format, long loadTime, ResourceBundle bundle, long weight, List<Key> ancestorKeys) {
+            this.key = key;
+            this.format = format;
+            this.loadTime = loadTime;
+            this.bundle = bundle;
+            this.weight = weight;
+            this.ancestorKeys = ancestorKeys;
+        }
+    }
+
+    private static final class Key {
+        final PackageableResourceControl control;
+        final String baseName;
+        final Locale locale;
+        final ClassLoader loader;
+
+        Key(PackageableResourceControl control, String baseName, Locale locale, ClassLoader loader) {
+            this.control = control;
+            this.baseName = baseName;
+            this.locale = locale;
+            this.loader = loader;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return control == other.control && loader == other.loader && baseName.equals(other.baseName) &&
+                    locale.equals(other.locale);
+        }
+
+        @Override
+        public int hashCode() {
+            return (baseName.hashCode() * 31 + locale.hashCode()) * 31 + System.identityHashCode(loader);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.joconner.i18n;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+
+/**
+ * BundleCompiler converts JSON and UTF-8 properties bundles into the binary format read by
+ * CompiledResourceBundle. Compiled bundles keep the name of their source file and replace its
+ * extension with "erb", so com/example/res/fr-ca/Foo.json becomes com/example/res/fr-ca/Foo.erb.
+ * <p>
+ * Run the compiler from the command line or from a build with a source and a target directory:
+ * <pre>
+ * java com.joconner.i18n.BundleCompiler src/main/resources build/resources/main
+ * </pre>
+ *
+ * @author joconner
+ */
+public class BundleCompiler {
+
+    static final String COMPILED_SUFFIX = "erb";
+
+    /**
+     * Compiles the key-value pairs into the binary bundle format.
+     *
+     * @param entries the key-value pairs of a single bundle
+     * @param out the stream that receives the compiled bundle; it is not closed
+     * @throws IOException
+     */
+    public static void compile(Map<String, String> entries, OutputStream out) throws IOException {
+        List<String> keys = new ArrayList<>(entries.keySet());
+        Collections.sort(keys);
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        DataOutputStream index = new DataOutputStream(out);
+        index.writeInt(CompiledResourceBundle.MAGIC);
+        index.writeInt(keys.size());
+        for (String key : keys) {
+            byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            byte[] valueBytes = entries.get(key).getBytes(StandardCharsets.UTF_8);
+            index.writeInt(data.size());
+            index.writeInt(keyBytes.length);
+            data.write(keyBytes);
+            index.writeInt(data.size());
+            index.writeInt(valueBytes.length);
+            data.write(valueBytes);
+        }
+        data.writeTo(index);
+        index.flush();
+    }
+
+    /**
+     * Reads the resolved key-value pairs of a JSON bundle.
+     */
+    public static Map<String, String> readJson(Reader reader) throws IOException {
+        JsonResourceBundle bundle = new JsonResourceBundle(reader);
+        Map<String, String> entries = new HashMap<>();
+        for (String key : bundle.handleKeySet()) {
+            entries.put(key, (String) bundle.handleGetObject(key));
+        }
+        return entries;
+    }
+
+    /**
+     * Reads the key-value pairs of a properties bundle.
+     */
+    public static Map<String, String> readProperties(Reader reader) throws IOException {
+        Properties properties = new Properties();
+        properties.load(reader);
+        Map<String, String> entries = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            entries.put(key, properties.getProperty(key));
+        }
+        return entries;
+    }
+
+    /**
+     * Compiles every .json and .properties bundle below the source directory into the target directory,
+     * keeping the relative path of each bundle. Multi-locale .locales.json files aren't compiled. Files
+     * that can't be read as bundles, such as a JSON schema, are skipped with a warning on System.err.
+     *
+     * @return the number of bundles compiled
+     */
+    public static int compileTree(Path sourceDir, Path targetDir) throws IOException {
+        return compileTree(sourceDir, targetDir, System.err);
+    }
+
+    /**
+     * Compiles every .json and .properties bundle below the source directory into the target directory,
+     * keeping the relative path of each bundle. Multi-locale .locales.json files aren't compiled. Files
+     * that can't be read as bundles are skipped, and a
+     * warning that names the file is printed to warnings.
+     *
+     * @return the number of bundles compiled
+     */
+    public static int compileTree(final Path sourceDir, final Path targetDir, final PrintStream warnings)
+            throws IOException {
+        final int[] count = {0};
+        Files.walkFileTree(sourceDir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                String fileName = file.getFileName().toString();
+                Map<String, String> entries;
+                int dot = fileName.lastIndexOf('.');
+                String extension = dot < 0 ? "" : fileName.substring(dot + 1);
+                if (!extension.equals("json") && !extension.equals("properties") ||
+                        fileName.endsWith("." + JsonResourceBundleControl.FORMAT_JSON_LOCALES)) {
+                    // Multi-locale files hold many bundles and are read by the control as they are.
+                    return FileVisitResult.CONTINUE;
+                }
+                try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    entries = extension.equals("json") ? readJson(reader) : readProperties(reader);
+                } catch (IOException | IllegalArgumentException e) {
+                    warnings.println("Skipping " + sourceDir.relativize(file) + ": " + e.getMessage());
+                    return FileVisitResult.CONTINUE;
+                }
+                Path relative = sourceDir.relativize(file);
+                String compiledName = fileName.substring(0, dot + 1) + COMPILED_SUFFIX;
+                Path target = targetDir.resolve(relative.toString()).resolveSibling(compiledName);
+                Files.createDirectories(target.getParent());
+                write(entries, target);
+                count[0]++;
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return count[0];
+    }
+
+    /**
+     * Compiles entries into a temporary file next to the target and moves it in place of the target.
+     * Applications memory-map compiled bundles and read their values lazily, so an existing target must
+     * be replaced rather than rewritten; a bundle that is mapped keeps reading the file it mapped.
+     */
+    static void write(Map<String, String> entries, Path target) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), "." + target.getFileName(), ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                compile(entries, out);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BundleCompiler <source-dir> <target-dir>");
+            System.exit(1);
+        }
+        int count = compileTree(Paths.get(args[0]), Paths.get(args[1]));
+        System.out.println("Compiled " + count + " bundles into " + args[1]);
+    }
+}
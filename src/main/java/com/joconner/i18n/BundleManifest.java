@@ -0,0 +1,202 @@
+package com.joconner.i18n;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A BundleManifest lists the bundle resources that exist at build time. The bundleManifest task of the
+ * build writes the list to META-INF/enhanced-resources/bundles.list, one resource name per line, for
+ * example:
+ * <pre>
+ * com/example/res/Foo.properties
+ * com/example/res/fr-ca/Foo.json
+ * </pre>
+ * A control with a manifest answers getCandidateLocales and getFormats from the manifest for every base
+ * name that the manifest contains, so ResourceBundle.getBundle doesn't ask the class loader for bundles
+ * that don't exist. Base names that don't appear in the manifest are looked up as usual.
+ * <p>
+ * For base names in the manifest, the manifest is authoritative: bundles that aren't listed, including
+ * class-based bundles, aren't loaded.
+ *
+ * @author joconner
+ */
+public class BundleManifest {
+
+    /**
+     * The resource name of the manifest written by the build.
+     */
+    public static final String MANIFEST_RESOURCE = "META-INF/enhanced-resources/bundles.list";
+
+    /**
+     * The suffixes of the bundle resources that the controls load.
+     */
+    private static final Set<String> BUNDLE_SUFFIXES = new HashSet<>(Arrays.asList("json", "properties",
+            "class", PackageableResourceControl.FORMAT_COMPILED));
+
+    /**
+     * The locale part of a bundle name in the default organization: a language, and an optional script,
+     * country, and variant.
+     */
+    private static final Pattern LOCALE_SUFFIX =
+            Pattern.compile("_([a-z]{2,3})(_[A-Z][a-z]{3})?(_(?:[A-Z]{2}|[0-9]{3}))?(_.+)?");
+
+    private final Set<String> resources;
+    private final Map<String, Set<String>> suffixesByBase = new HashMap<>();
+
+    /**
+     * Creates a manifest of the given resource names.
+     */
+    public BundleManifest(Collection<String> resourceNames) {
+        resources = new HashSet<>(resourceNames);
+        for (String resourceName : resources) {
+            index(resourceName);
+        }
+    }
+
+    /**
+     * Reads and merges every manifest that the class loader can find.
+     *
+     * @return the merged manifest; it's empty if the class loader has no manifest
+     */
+    public static BundleManifest load(ClassLoader loader) throws IOException {
+        List<String> resourceNames = new ArrayList<>();
+        Enumeration<URL> manifests = loader.getResources(MANIFEST_RESOURCE);
+        while (manifests.hasMoreElements()) {
+            try (Reader reader = new InputStreamReader(manifests.nextElement().openStream(), StandardCharsets.UTF_8)) {
+                resourceNames.addAll(read(reader));
+            }
+        }
+        return new BundleManifest(resourceNames);
+    }
+
+    /**
+     * Reads the resource names of a manifest. Blank lines and lines that start with # are ignored.
+     */
+    public static List<String> read(Reader reader) throws IOException {
+        List<String> resourceNames = new ArrayList<>();
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        while ((line = lines.readLine()) != null) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                resourceNames.add(line);
+            }
+        }
+        return resourceNames;
+    }
+
+    /**
+     * Returns true if the manifest lists the resource.
+     */
+    public boolean contains(String resourceName) {
+        return resources.contains(resourceName);
+    }
+
+    /**
+     * Returns true if the manifest lists at least one bundle of the base name.
+     */
+    public boolean covers(String baseName) {
+        return suffixesByBase.containsKey(basePath(baseName));
+    }
+
+    /**
+     * Returns the file suffixes of the bundles of a base name, or an empty set if the manifest
+     * doesn't cover the base name.
+     */
+    Set<String> suffixes(String baseName) {
+        Set<String> suffixes = suffixesByBase.get(basePath(baseName));
+        return suffixes == null ? Collections.<String>emptySet() : suffixes;
+    }
+
+    private static String basePath(String baseName) {
+        return baseName.replace('.', '/');
+    }
+
+    /**
+     * Records the suffix of a resource under the one base path that its name says it belongs to. A name
+     * that ends with a locale, as in a/b/Foo_fr_CA.json, belongs to a/b/Foo in the default organization.
+     * Otherwise a resource in a directory named after a locale, as in a/b/fr-ca/Foo.json, belongs to a/b/Foo
+     * in the package-based organization. Any other resource, such as a/b/Foo.json, is the root bundle of
+     * its own base path. Resources with a suffix that the controls don't load aren't bundles and are
+     * ignored.
+     */
+    private void index(String resourceName) {
+        String localesSuffix = "." + JsonResourceBundleControl.FORMAT_JSON_LOCALES;
+        if (resourceName.endsWith(localesSuffix)) {
+            // A multi-locale file belongs to exactly one base name.
+            addSuffix(resourceName.substring(0, resourceName.length() - localesSuffix.length()),
+                    JsonResourceBundleControl.FORMAT_JSON_LOCALES);
+            return;
+        }
+        int dot = resourceName.lastIndexOf('.');
+        int slash = resourceName.lastIndexOf('/');
+        if (dot <= slash + 1) {
+            return;
+        }
+        String suffix = resourceName.substring(dot + 1);
+        if (!BUNDLE_SUFFIXES.contains(suffix)) {
+            return;
+        }
+        String name = resourceName.substring(slash + 1, dot);
+        String directory = slash < 0 ? "" : resourceName.substring(0, slash);
+        String prefix = slash < 0 ? "" : directory + "/";
+        int localeStart = localeSuffixStart(name);
+        if (localeStart > 0) {
+            addSuffix(prefix + name.substring(0, localeStart), suffix);
+            return;
+        }
+        int parentSlash = directory.lastIndexOf('/');
+        if (!directory.isEmpty() && isLocaleDirectory(directory.substring(parentSlash + 1))) {
+            addSuffix(parentSlash < 0 ? name : directory.substring(0, parentSlash + 1) + name, suffix);
+            return;
+        }
+        addSuffix(prefix + name, suffix);
+    }
+
+    /**
+     * Returns the position of the underscore that starts the locale of a bundle name in the default
+     * organization, such as the "_fr_CA" of "Foo_fr_CA", or -1 if the name doesn't end with a locale.
+     */
+    private static int localeSuffixStart(String name) {
+        for (int underscore = name.indexOf('_'); underscore > 0; underscore = name.indexOf('_', underscore + 1)) {
+            Matcher matcher = LOCALE_SUFFIX.matcher(name).region(underscore, name.length());
+            if (matcher.matches() && isLanguage(matcher.group(1))) {
+                return underscore;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns true if a directory name is the lowercase language tag of a locale, as in the bundle names
+     * of the package-based organization.
+     */
+    private static boolean isLocaleDirectory(String directory) {
+        Locale locale = Locale.forLanguageTag(directory);
+        return locale.toLanguageTag().toLowerCase(Locale.ROOT).equals(directory) && isLanguage(locale.getLanguage());
+    }
+
+    /**
+     * Returns true if the JDK knows a language code, so that a package or a name part such as "res"
+     * isn't taken for a language.
+     */
+    private static boolean isLanguage(String language) {
+        return !language.isEmpty() && !new Locale(language).getDisplayLanguage(Locale.ENGLISH).equals(language);
+    }
+
+    private void addSuffix(String basePath, String suffix) {
+        Set<String> suffixes = suffixesByBase.get(basePath);
+        if (suffixes == null) {
+            suffixes = new HashSet<>();
+            suffixesByBase.put(basePath, suffixes);
+        }
+        suffixes.add(suffix);
+    }
+}
@@ -0,0 +1,81 @@
+package com.joconner.i18n;
+
+import java.util.Locale;
+
+/**
+ * BundleMetrics receives events from the controls and bundles of this package. Set an implementation
+ * on a control with PackageableResourceControl.setMetrics to observe bundle loads, reloads, ResourceBundle
+ * cache activity, and missing keys. CounterBundleMetrics is a ready-made implementation that counts the
+ * events and provides snapshots of the counts.
+ * <p>
+ * Implementations are called on the lookup path of every bundle, so they must be thread-safe, and they
+ * should neither block nor allocate.
+ *
+ * @author joconner
+ */
+public interface BundleMetrics {
+
+    /**
+     * A BundleMetrics that ignores all events. This is the default of every control.
+     */
+    BundleMetrics NONE = new BundleMetrics() {
+        @Override
+        public void bundleLoaded(String format, Locale locale, long nanos, long bytes) {
+        }
+
+        @Override
+        public void bundleReloaded(String format, Locale locale) {
+        }
+
+        @Override
+        public void cacheHit(String format, Locale locale) {
+        }
+
+        @Override
+        public void cacheMiss(String format, Locale locale) {
+        }
+
+        @Override
+        public void keyMissing(String key) {
+        }
+    };
+
+    /**
+     * Called after a control's newBundle method created a bundle, including reloads.
+     *
+     * @param format the format of the bundle
+     * @param locale the locale of the bundle
+     * @param nanos the time newBundle took
+     * @param bytes the number of bytes read, or -1 if the control doesn't know. A bundle of a multi-locale
+     *     file reports the size of the file if the load read it, and 0 if the file was read before
+     */
+    void bundleLoaded(String format, Locale locale, long nanos, long bytes);
+
+    /**
+     * Called after a control's newBundle method created a bundle because the cached bundle was stale.
+     * bundleLoaded is called for the same load.
+     */
+    void bundleReloaded(String format, Locale locale);
+
+    /**
+     * Called when a control serves a cached bundle: when ResourceBundle.getBundle asks the control whether
+     * a cached bundle is still valid and the control keeps it, or when the control serves a bundle from
+     * its BundleCache. ResourceBundle.getBundle serves its own cache without asking the control unless the
+     * control returns a time-to-live, so cache hits are only reported in hot reload mode or when the
+     * control has a BundleCache. In the default configuration no hits are reported.
+     */
+    void cacheHit(String format, Locale locale);
+
+    /**
+     * Called when the control loads a bundle that wasn't in the cache of ResourceBundle.getBundle or of
+     * the control's BundleCache. Formats that have no bundle for the locale aren't counted, so each
+     * bundle load is one miss.
+     */
+    void cacheMiss(String format, Locale locale);
+
+    /**
+     * Called once when a key that was requested from a bundle of this package is in none of the bundles
+     * of its fallback chain.
+     */
+    void keyMissing(String key);
+}
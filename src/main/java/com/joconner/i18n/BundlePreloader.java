@@ -0,0 +1,194 @@
+package com.joconner.i18n;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * BundlePreloader loads bundles in parallel so that the first request for each locale doesn't pay for
+ * classpath probing and parsing. Every (baseName, locale) pair is loaded with ResourceBundle.getBundle,
+ * which also loads the parent bundles of each locale and puts all of them into the ResourceBundle cache.
+ * Later calls to getBundle with the same control and class loader find the bundles in that cache.
+ * <p>
+ * For example, call the preloader at startup with the controls that the application uses:
+ * <pre>
+ * BundlePreloader preloader = new BundlePreloader(new JsonResourceBundleControl(true));
+ * BundlePreloader.Report report = preloader.preload(baseNames, locales);
+ * </pre>
+ *
+ * @author joconner
+ */
+public class BundlePreloader {
+
+    private final ResourceBundle.Control control;
+    private final ClassLoader loader;
+    private final Executor executor;
+
+    /**
+     * Creates a preloader that loads bundles with the context class loader of the current thread on the
+     * common fork-join pool.
+     */
+    public BundlePreloader(ResourceBundle.Control control) {
+        this(control, Thread.currentThread().getContextClassLoader(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a preloader. Use the same class loader that the application passes to
+     * ResourceBundle.getBundle, because the ResourceBundle cache is keyed by class loader.
+     *
+     * @param control the control that loads the bundles
+     * @param loader the class loader that loads the bundles
+     * @param executor the executor that runs the loads
+     */
+    public BundlePreloader(ResourceBundle.Control control, ClassLoader loader, Executor executor) {
+        if (control == null || loader == null || executor == null) {
+            throw new NullPointerException("Control, loader, and executor must not be null.");
+        }
+        this.control = control;
+        this.loader = loader;
+        this.executor = executor;
+    }
+
+    /**
+     * Loads every combination of base name and locale in parallel and waits until all loads finish.
+     *
+     * @param baseNames the base names of the bundles
+     * @param locales the locales to load for each base name
+     * @return a report of the load time of each bundle and of the bundles that weren't found
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public Report preload(Collection<String> baseNames, Collection<Locale> locales) throws InterruptedException {
+        long start = System.nanoTime();
+        List<CompletableFuture<Result>> futures = new ArrayList<>();
+        for (final String baseName : baseNames) {
+            for (final Locale locale : locales) {
+                futures.add(CompletableFuture.supplyAsync(new LoadTask(baseName, locale), executor));
+            }
+        }
+        List<Result> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<Result> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Bundle preloading failed.", e.getCause());
+            }
+        }
+        return new Report(results, System.nanoTime() - start);
+    }
+
+    private class LoadTask implements Supplier<Result> {
+        private final String baseName;
+        private final Locale locale;
+
+        LoadTask(String baseName, Locale locale) {
+            this.baseName = baseName;
+            this.locale = locale;
+        }
+
+        @Override
+        public Result get() {
+            long start = System.nanoTime();
+            ResourceBundle bundle = null;
+            try {
+                bundle = ResourceBundle.getBundle(baseName, locale, loader, control);
+            } catch (MissingResourceException e) {
+                // Reported as a missing bundle.
+            }
+            return new Result(baseName, locale, bundle == null ? null : bundle.getLocale(),
+                    System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * The outcome of loading one base name in one locale.
+     */
+    public static final class Result {
+        private final String baseName;
+        private final Locale locale;
+        private final Locale bundleLocale;
+        private final long loadNanos;
+
+        Result(String baseName, Locale locale, Locale bundleLocale, long loadNanos) {
+            this.baseName = baseName;
+            this.locale = locale;
+            this.bundleLocale = bundleLocale;
+            this.loadNanos = loadNanos;
+        }
+
+        public String getBaseName() {
+            return baseName;
+        }
+
+        public Locale getLocale() {
+            return locale;
+        }
+
+        /**
+         * Returns the locale of the bundle that getBundle returned, or null if no bundle was found.
+         */
+        public Locale getBundleLocale() {
+            return bundleLocale;
+        }
+
+        public long getLoadNanos() {
+            return loadNanos;
+        }
+
+        /**
+         * Returns true if no bundle was found for the base name in any candidate locale.
+         */
+        public boolean isMissing() {
+            return bundleLocale == null;
+        }
+
+        /**
+         * Returns true if a bundle was found, but not for the requested locale.
+         */
+        public boolean isFallback() {
+            return bundleLocale != null && !bundleLocale.equals(locale);
+        }
+
+        @Override
+        public String toString() {
+            return baseName + " [" + locale.toLanguageTag() + "] " + (isMissing() ? "missing" :
+                    TimeUnit.NANOSECONDS.toMicros(loadNanos) + "us");
+        }
+    }
+
+    /**
+     * The results of a preload, in the order of the requested base names and locales.
+     */
+    public static final class Report {
+        private final List<Result> results;
+        private final long elapsedNanos;
+
+        Report(List<Result> results, long elapsedNanos) {
+            this.results = Collections.unmodifiableList(results);
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public List<Result> getResults() {
+            return results;
+        }
+
+        /**
+         * Returns the results of the base names and locales for which no bundle was found.
+         */
+        public List<Result> getMissing() {
+            List<Result> missing = new ArrayList<>();
+            for (Result result : results) {
+                if (result.isMissing()) {
+                    missing.add(result);
+                }
+            }
+            return missing;
+        }
+
+        /**
+         * Returns the wall-clock time of the whole preload.
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.joconner.i18n;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * BundleReloader rebuilds changed bundles for a control that reloads in the background. There is at most one
+ * pending reload for each bundle: the first caller that finds a bundle changed starts the reload on an
+ * executor, and later callers find the pending reload and keep using the bundle they have. When the
+ * reloaded bundle is ready, exactly one caller claims it and swaps it in. Reloads refer to their class
+ * loaders weakly, and the reloads of a collected class loader are forgotten.
+ *
+ * @author joconner
+ */
+final class BundleReloader {
+
+    private final ConcurrentMap<Key, Reload> reloads = new ConcurrentHashMap<>();
+    private final ReferenceQueue<ClassLoader> collected = new ReferenceQueue<>();
+
+    /**
+     * Loads the bundle of a reload.
+     */
+    interface Load {
+        ResourceBundle load(ClassLoader loader) throws Exception;
+    }
+
+    /**
+     * Returns the pending reload of a bundle. If there is none, starts one that runs the load on the
+     * executor.
+     */
+    Reload reload(String baseName, Locale locale, String format, ClassLoader loader, Executor executor,
+                  Load load) {
+        purge();
+        Key key = new Key(baseName, locale, format, loader, collected);
+        Reload pending = reloads.get(key);
+        if (pending != null) {
+            return pending;
+        }
+        final Reload created = new Reload(key, load);
+        pending = reloads.putIfAbsent(key, created);
+        if (pending != null) {
+            return pending;
+        }
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    created.run();
+                }
+            });
+        } catch (RuntimeException e) {
+            // The executor rejected the reload, so the bundle is reloaded by the caller that claims it.
+            created.loadTime = System.currentTimeMillis();
+            created.finish(null);
+        }
+        return created;
+    }
+
+    /**
+     * Forgets a pending reload, so that the next call of reload starts a new one.
+     */
+    void discard(Reload reload) {
+        reloads.remove(reload.key, reload);
+    }
+
+    /**
+     * Removes and returns the claimed reload of a bundle, or returns null if no reload of the bundle
+     * was claimed.
+     */
+    Reload take(String baseName, Locale locale, String format, ClassLoader loader) {
+        if (reloads.isEmpty()) {
+            return null;
+        }
+        Key key = new Key(baseName, locale, format, loader, null);
+        Reload reload = reloads.get(key);
+        if (reload == null || !reload.claimed.get()) {
+            return null;
+        }
+        return reloads.remove(key, reload) ? reload : null;
+    }
+
+    /**
+     * Forgets the claimed reloads of a bundle in formats other than the given one. ResourceBundle.getBundle
+     * asks for the formats of a bundle in order and stops at the first one that has a bundle, so once a
+     * format has a bundle, a claim for another format will never be taken.
+     */
+    void discardOtherClaims(String baseName, Locale locale, String format, ClassLoader loader,
+                            List<String> formats) {
+        for (String other : formats) {
+            if (!other.equals(format)) {
+                take(baseName, locale, other, loader);
+            }
+        }
+    }
+
+    boolean isEmpty() {
+        return reloads.isEmpty();
+    }
+
+    /**
+     * Forgets the reloads whose class loader was collected.
+     */
+    private void purge() {
+        Reference<? extends ClassLoader> reference;
+        while ((reference = collected.poll()) != null) {
+            reloads.remove(((LoaderReference) reference).key);
+        }
+    }
+
+    /**
+     * Forgets every pending reload.
+     */
+    void clear() {
+        reloads.clear();
+    }
+
+    /**
+     * A reload of one bundle. The bundle is null until the reload is done, and stays null if the
+     * reload failed or the bundle no longer exists.
+     */
+    static final class Reload {
+        final Key key;
+        private final Load load;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private volatile ResourceBundle bundle;
+        private volatile long loadTime;
+        private volatile boolean done;
+
+        Reload(Key key, Load load) {
+            this.key = key;
+            this.load = load;
+        }
+
+        void run() {
+            loadTime = System.currentTimeMillis();
+            ResourceBundle loaded = null;
+            ClassLoader loader = key.loader.get();
+            try {
+                loaded = loader == null ? null : load.load(loader);
+            } catch (Exception e) {
+                // Like ResourceBundle.getBundle, a failed load counts as a missing bundle.
+            }
+            finish(loaded);
+        }
+
+        void finish(ResourceBundle loaded) {
+            bundle = loaded;
+            done = true;
+        }
+
+        boolean isDone() {
+            return done;
+        }
+
+        /**
+         * Returns the time in milliseconds when the reload started reading the bundle.
+         */
+        long getLoadTime() {
+            return loadTime;
+        }
+
+        ResourceBundle getBundle() {
+            return bundle;
+        }
+
+        /**
+         * Returns true for exactly one caller once the reload is done.
+         */
+        boolean claim() {
+            return done && claimed.compareAndSet(false, true);
+        }
+    }
+
+    private static final class LoaderReference extends WeakReference<ClassLoader> {
+        final Key key;
+
+        LoaderReference(ClassLoader loader, Key key, ReferenceQueue<ClassLoader> queue) {
+            super(loader, queue);
+            this.key = key;
+        }
+    }
+
+    /**
+     * The key of a reload. A key refers to its class loader weakly; a key whose class loader was collected
+     * is only equal to itself.
+     */
+    private static final class Key {
+        final String baseName;
+        final Locale locale;
+        final String format;
+        final LoaderReference loader;
+        final int hash;
+
+        Key(String baseName, Locale locale, String format, ClassLoader loader, ReferenceQueue<ClassLoader> queue) {
+            this.baseName = baseName;
+            this.locale = locale;
+            this.format = format;
+            this.loader = new LoaderReference(loader, this, queue);
+            hash = ((baseName.hashCode() * 31 + locale.hashCode()) * 31 + format.hashCode()) * 31 +
+                    System.identityHashCode(loader);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            ClassLoader classLoader = loader.get();
+            return classLoader != null && classLoader == other.loader.get() && baseName.equals(other.baseName) &&
+                    locale.equals(other.locale) && format.equals(other.format);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.joconner.i18n;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * A CompiledResourceBundle reads the binary bundle format that the BundleCompiler produces from JSON and
+ * properties bundles. The format is designed to be used directly from a read-only MappedByteBuffer:
+ * <pre>
+ * int    magic         0x45524231 ("ERB1")
+ * int    count         number of entries
+ * int[4] index[count]  keyOffset, keyLength, valueOffset, valueLength for each entry,
+ *                      sorted by key in natural String order
+ * byte[] data          UTF-8 encoded keys and values; offsets are relative to the start of data
+ * </pre>
+ * All integers are big-endian. Keys are decoded when the bundle is constructed so that lookups are a binary
+ * search over a String array. Values stay in the buffer as UTF-8 bytes until they are requested the first
+ * time, and the decoded String is kept for later lookups.
+ *
+ * @author joconner
+ */
+public class CompiledResourceBundle extends IndexedResourceBundle {
+
+    static final int MAGIC = 0x45524231;
+    static final int HEADER_SIZE = 8;
+    static final int INDEX_ENTRY_SIZE = 16;
+
+    private final ByteBuffer buffer;
+    private final int dataStart;
+    private final String[] keys;
+    private final String[] values;
+    private final Set<String> keySet;
+
+    /**
+     * Constructor will typically be called from a ResourceBundle.Control subclass that supports the
+     * compiled bundle format. The bundle keeps a reference to the buffer, which must not be modified.
+     *
+     * @param buffer a buffer that contains a compiled bundle from its position to its limit
+     * @throws IOException if the buffer doesn't contain a compiled bundle, or if the bundle is truncated
+     *     or its index points outside the bundle
+     */
+    public CompiledResourceBundle(ByteBuffer buffer) throws IOException {
+        if (buffer == null) {
+            throw new NullPointerException("Buffer is null.");
+        }
+        this.buffer = buffer.slice().order(ByteOrder.BIG_ENDIAN);
+        if (this.buffer.remaining() < HEADER_SIZE || this.buffer.getInt(0) != MAGIC) {
+            throw new IOException("The requested file is not the correct format for compiled bundles.");
+        }
+        int count = this.buffer.getInt(4);
+        if (count < 0 || HEADER_SIZE + (long) count * INDEX_ENTRY_SIZE > this.buffer.limit()) {
+            throw new IOException("The compiled bundle index is corrupt.");
+        }
+        dataStart = HEADER_SIZE + count * INDEX_ENTRY_SIZE;
+        int dataSize = this.buffer.limit() - dataStart;
+        keys = new String[count];
+        for (int x = 0; x < count; x++) {
+            int entry = HEADER_SIZE + x * INDEX_ENTRY_SIZE;
+            // Values are decoded later without checks, so the whole entry is checked here.
+            if (!inData(this.buffer.getInt(entry), this.buffer.getInt(entry + 4), dataSize) ||
+                    !inData(this.buffer.getInt(entry + 8), this.buffer.getInt(entry + 12), dataSize)) {
+                throw new IOException("The compiled bundle entry " + x + " is outside the bundle.");
+            }
+            keys[x] = decode(this.buffer.getInt(entry), this.buffer.getInt(entry + 4));
+            if (x > 0 && keys[x - 1].compareTo(keys[x]) >= 0) {
+                throw new IOException("The keys of the compiled bundle aren't sorted.");
+            }
+        }
+        values = new String[count];
+        keySet = KeyArray.asSortedSet(keys);
+    }
+
+    private static boolean inData(int offset, int length, int dataSize) {
+        return offset >= 0 && length >= 0 && (long) offset + length <= dataSize;
+    }
+
+    @Override
+    String ownValue(String key) {
+        int index = Arrays.binarySearch(keys, key);
+        if (index < 0) {
+            return null;
+        }
+        // Strings are immutable, so a racing thread at worst decodes the same value twice.
+        String value = values[index];
+        if (value == null) {
+            int entry = HEADER_SIZE + index * INDEX_ENTRY_SIZE;
+            value = decode(buffer.getInt(entry + 8), buffer.getInt(entry + 12));
+            values[index] = value;
+        }
+        return value;
+    }
+
+    /**
+     * Returns an unmodifiable view of the keys contained in this bundle only.
+     */
+    @Override
+    protected Set<String> handleKeySet() {
+        return keySet;
+    }
+
+    @Override
+    String[] ownKeys() {
+        return keys;
+    }
+
+    /**
+     * Returns the size of the compiled bundle in bytes.
+     */
+    int byteSize() {
+        return buffer.limit();
+    }
+
+    /**
+     * Estimates the heap size of the decoded keys and the value cache. The buffer is counted too, although
+     * a mapped buffer doesn't use the heap, because values are decoded from it on demand.
+     */
+    @Override
+    long estimatedSize() {
+        long size = 64 + byteSize();
+        for (String key : keys) {
+            size += ENTRY_OVERHEAD + StringPool.estimateSize(key);
+        }
+        return size;
+    }
+
+    private String decode(int offset, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(dataStart + offset);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
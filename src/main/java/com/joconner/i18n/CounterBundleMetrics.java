@@ -0,0 +1,201 @@
+package com.joconner.i18n;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * CounterBundleMetrics counts BundleMetrics events with LongAdder counters. Recording an event doesn't take
+ * a lock, and only the first load of a new format and locale allocates. Call snapshot to read the counts,
+ * for example to publish them to an application's metrics system.
+ *
+ * @author joconner
+ */
+public class CounterBundleMetrics implements BundleMetrics {
+
+    private final LongAdder reloads = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder missingKeys = new LongAdder();
+    private final ConcurrentMap<String, ConcurrentMap<Locale, LoadCounters>> loads = new ConcurrentHashMap<>();
+
+    @Override
+    public void bundleLoaded(String format, Locale locale, long nanos, long bytes) {
+        LoadCounters counters = countersFor(format, locale);
+        counters.count.increment();
+        counters.nanos.add(nanos);
+        if (bytes > 0) {
+            counters.bytes.add(bytes);
+        }
+    }
+
+    @Override
+    public void bundleReloaded(String format, Locale locale) {
+        reloads.increment();
+    }
+
+    @Override
+    public void cacheHit(String format, Locale locale) {
+        cacheHits.increment();
+    }
+
+    @Override
+    public void cacheMiss(String format, Locale locale) {
+        cacheMisses.increment();
+    }
+
+    @Override
+    public void keyMissing(String key) {
+        missingKeys.increment();
+    }
+
+    private LoadCounters countersFor(String format, Locale locale) {
+        ConcurrentMap<Locale, LoadCounters> byLocale = loads.get(format);
+        if (byLocale == null) {
+            ConcurrentMap<Locale, LoadCounters> created = new ConcurrentHashMap<>();
+            byLocale = loads.putIfAbsent(format, created);
+            if (byLocale == null) {
+                byLocale = created;
+            }
+        }
+        LoadCounters counters = byLocale.get(locale);
+        if (counters == null) {
+            LoadCounters created = new LoadCounters();
+            counters = byLocale.putIfAbsent(locale, created);
+            if (counters == null) {
+                counters = created;
+            }
+        }
+        return counters;
+    }
+
+    /**
+     * Returns the current counts. Counters are read one at a time while other threads may record events,
+     * so the counts of a snapshot aren't guaranteed to be consistent with each other.
+     */
+    public Snapshot snapshot() {
+        Map<String, Map<Locale, LoadStatistics>> loadStatistics = new TreeMap<>();
+        for (Map.Entry<String, ConcurrentMap<Locale, LoadCounters>> format : loads.entrySet()) {
+            Map<Locale, LoadStatistics> byLocale = new HashMap<>();
+            for (Map.Entry<Locale, LoadCounters> locale : format.getValue().entrySet()) {
+                LoadCounters counters = locale.getValue();
+                byLocale.put(locale.getKey(), new LoadStatistics(counters.count.sum(), counters.nanos.sum(),
+                        counters.bytes.sum()));
+            }
+            loadStatistics.put(format.getKey(), Collections.unmodifiableMap(byLocale));
+        }
+        return new Snapshot(Collections.unmodifiableMap(loadStatistics), reloads.sum(), cacheHits.sum(),
+                cacheMisses.sum(), missingKeys.sum());
+    }
+
+    private static final class LoadCounters {
+        final LongAdder count = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+    }
+
+    /**
+     * The loads of one format in one locale.
+     */
+    public static final class LoadStatistics {
+        private final long count;
+        private final long nanos;
+        private final long bytes;
+
+        LoadStatistics(long count, long nanos, long bytes) {
+            this.count = count;
+            this.nanos = nanos;
+            this.bytes = bytes;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the total time of all loads.
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * Returns the total number of bytes read by all loads.
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + count + ", nanos=" + nanos + ", bytes=" + bytes;
+        }
+    }
+
+    /**
+     * The counts of a CounterBundleMetrics at one point in time.
+     */
+    public static final class Snapshot {
+        private final Map<String, Map<Locale, LoadStatistics>> loads;
+        private final long reloads;
+        private final long cacheHits;
+        private final long cacheMisses;
+        private final long missingKeys;
+
+        Snapshot(Map<String, Map<Locale, LoadStatistics>> loads, long reloads, long cacheHits,
+                 long cacheMisses, long missingKeys) {
+            this.loads = loads;
+            this.reloads = reloads;
+            this.cacheHits = cacheHits;
+            this.cacheMisses = cacheMisses;
+            this.missingKeys = missingKeys;
+        }
+
+        /**
+         * Returns the load statistics by format and locale.
+         */
+        public Map<String, Map<Locale, LoadStatistics>> getLoads() {
+            return loads;
+        }
+
+        /**
+         * Returns the number of loads of all formats and locales.
+         */
+        public long getLoadCount() {
+            long count = 0;
+            for (Map<Locale, LoadStatistics> byLocale : loads.values()) {
+                for (LoadStatistics statistics : byLocale.values()) {
+                    count += statistics.getCount();
+                }
+            }
+            return count;
+        }
+
+        public long getReloads() {
+            return reloads;
+        }
+
+        /**
+         * Returns the number of cached bundles that controls served. Only controls in hot reload mode or
+         * with a BundleCache report cache hits; see BundleMetrics.cacheHit.
+         */
+        public long getCacheHits() {
+            return cacheHits;
+        }
+
+        public long getCacheMisses() {
+            return cacheMisses;
+        }
+
+        public long getMissingKeys() {
+            return missingKeys;
+        }
+
+        @Override
+        public String toString() {
+            return "loads=" + loads + ", reloads=" + reloads + ", cacheHits=" + cacheHits +
+                    ", cacheMisses=" + cacheMisses + ", missingKeys=" + missingKeys;
+        }
+    }
+}
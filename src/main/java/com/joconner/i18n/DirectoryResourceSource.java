@@ -0,0 +1,42 @@
+package com.joconner.i18n;
+
+import java.nio.file.Path;
+
+/**
+ * DirectoryResourceSource reads bundle files from a directory outside of the application, for example a
+ * directory of translations that is updated independently of the application's jar files:
+ * <pre>
+ * JsonResourceBundleControl control = new JsonResourceBundleControl(true);
+ * control.setResourceSource(new DirectoryResourceSource(Paths.get("/opt/app/translations")));
+ * </pre>
+ * The resource com/example/res/fr-ca/Foo.json is then read from
+ * /opt/app/translations/com/example/res/fr-ca/Foo.json. Compiled bundles are memory-mapped, and the version
+ * of a resource is its file's modification time and size.
+ *
+ * @author joconner
+ */
+public class DirectoryResourceSource extends PathResourceSource {
+
+    private final Path directory;
+
+    public DirectoryResourceSource(Path directory) {
+        if (directory == null) {
+            throw new NullPointerException("Directory is null.");
+        }
+        this.directory = directory.toAbsolutePath().normalize();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    Path root() {
+        return directory;
+    }
+
+    @Override
+    public String toString() {
+        return "DirectoryResourceSource[" + directory + "]";
+    }
+}
@@ -0,0 +1,401 @@
+package com.joconner.i18n;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * IndexedResourceBundle is the base class of the bundles in this package that keep their keys in an
+ * immutable array. It implements key enumeration once for all of them: the keys of a bundle and its
+ * parent chain are merged on the first call to getKeys and the merged array is shared by later calls.
+ * <p>
+ * A bundle can also flatten its fallback chain. A flattened bundle answers handleGetObject from a table
+ * that already maps each key of the bundle and its parents to the value of the most specific locale, so
+ * a lookup is a single probe no matter how many parents the bundle has. The table is built on the first
+ * lookup, on top of the parent's flattened table, and is built again when the bundle's parent is replaced
+ * or rebuilds its own table. ResourceBundle.getBundle reloads a bundle whose parent was reloaded, so a
+ * change anywhere in the chain reaches every bundle below it. Only parents that are IndexedResourceBundles are flattened; a lookup that
+ * misses still continues in other kinds of parents as usual.
+ * <p>
+ * The format methods format a value as a java.text.MessageFormat pattern. Each bundle compiles the pattern
+ * of a key on the first call and keeps the compiled pattern, so later calls neither parse the pattern nor
+ * create a MessageFormat.
+ * <p>
+ * getValuesWithPrefix returns the keys of a namespace, such as the dotted nested keys of a JSON bundle, from
+ * an index that keeps the keys of the bundle and its parents sorted. The index is built on the first call and
+ * is built again when the parent chain changes, in the same way as a flattened table.
+ *
+ * @author joconner
+ */
+public abstract class IndexedResourceBundle extends ResourceBundle {
+
+    /**
+     * The estimated size of the table slots and key array element of one entry.
+     */
+    static final int ENTRY_OVERHEAD = 40;
+
+    private volatile MergedKeys mergedKeys;
+    private volatile FlattenedTable flattened;
+    private volatile ConcurrentMap<String, MessagePattern> messages;
+    private volatile PrefixIndex prefixIndex;
+    BundleMetrics metrics = BundleMetrics.NONE;
+    boolean flattenParents;
+    /**
+     * The stamp of the bundle's resource from before the resource was read, which a control in hot reload
+     * mode compares with the resource's current stamp.
+     */
+    volatile Object readStamp;
+
+    IndexedResourceBundle() {
+    }
+
+    /**
+     * Returns the keys contained in this bundle only. The array is shared and must not be modified.
+     */
+    abstract String[] ownKeys();
+
+    /**
+     * Returns the value of a key of this bundle only, or null if this bundle doesn't contain the key.
+     */
+    abstract String ownValue(String key);
+
+    /**
+     * Returns the key-value pairs of this bundle only, or null if the bundle doesn't keep them in a table.
+     */
+    StringTable table() {
+        return null;
+    }
+
+    /**
+     * Estimates the heap size of this bundle's own keys and values in bytes, including the slots of its
+     * table.
+     */
+    long estimatedSize() {
+        long size = 64;
+        for (String key : ownKeys()) {
+            size += ENTRY_OVERHEAD + StringPool.estimateSize(key) + StringPool.estimateSize(ownValue(key));
+        }
+        return size;
+    }
+
+    @Override
+    protected Object handleGetObject(String key) {
+        if (key == null) {
+            throw new NullPointerException("The key is null.");
+        }
+        String value = flattenParents ? flattenedTable().get(key) : ownValue(key);
+        if (value == null && metrics != BundleMetrics.NONE && isMissingBelow(key)) {
+            metrics.keyMissing(key);
+        }
+        return value;
+    }
+
+    /**
+     * Returns true if no bundle after this one in the fallback chain has a key. ResourceBundle.getObject
+     * asks every bundle of the chain in turn, so only the last bundle of this package in the chain reports
+     * a missing key; that way a key is reported once, and only when the whole chain missed it.
+     */
+    private boolean isMissingBelow(String key) {
+        ResourceBundle next = parent;
+        return next == null || !(next instanceof IndexedResourceBundle) && !next.containsKey(key);
+    }
+
+    /**
+     * Looks up many keys at once. The value of keys[x] is stored in values[x], or null if neither this
+     * bundle nor its parents have a string value for the key. The fallback chain is walked once for all
+     * keys: each bundle of the chain fills in the keys that the bundles before it didn't have, so a missing
+     * key costs no MissingResourceException.
+     *
+     * @param keys the keys to look up
+     * @param values receives the values; must be at least as long as keys
+     * @return the number of keys that weren't found
+     * @throws NullPointerException if a key is null
+     * @throws IllegalArgumentException if values is shorter than keys
+     */
+    public int resolve(String[] keys, String[] values) {
+        if (values.length < keys.length) {
+            throw new IllegalArgumentException("The values array is shorter than the keys array.");
+        }
+        for (int x = 0; x < keys.length; x++) {
+            if (keys[x] == null) {
+                throw new NullPointerException("The key at index " + x + " is null.");
+            }
+            values[x] = null;
+        }
+        int missing = keys.length;
+        ResourceBundle bundle = this;
+        if (flattenParents) {
+            StringTable table = flattenedTable();
+            for (int x = 0; x < keys.length; x++) {
+                if ((values[x] = table.get(keys[x])) != null) {
+                    missing--;
+                }
+            }
+            // The flattened table holds the chain up to the first parent that isn't an IndexedResourceBundle.
+            while (bundle instanceof IndexedResourceBundle) {
+                bundle = ((IndexedResourceBundle) bundle).parent;
+            }
+        }
+        while (bundle != null && missing > 0) {
+            if (bundle instanceof IndexedResourceBundle) {
+                IndexedResourceBundle indexed = (IndexedResourceBundle) bundle;
+                for (int x = 0; x < keys.length; x++) {
+                    if (values[x] == null && (values[x] = indexed.ownValue(keys[x])) != null) {
+                        missing--;
+                    }
+                }
+                bundle = indexed.parent;
+            } else {
+                // Other bundles resolve their own parents.
+                for (int x = 0; x < keys.length; x++) {
+                    if (values[x] == null && bundle.containsKey(keys[x])) {
+                        Object value = bundle.getObject(keys[x]);
+                        if (value instanceof String) {
+                            values[x] = (String) value;
+                            missing--;
+                        }
+                    }
+                }
+                bundle = null;
+            }
+        }
+        if (missing > 0 && metrics != BundleMetrics.NONE) {
+            for (int x = 0; x < keys.length; x++) {
+                if (values[x] == null) {
+                    metrics.keyMissing(keys[x]);
+                }
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Returns the keys of this bundle and its parents that start with a prefix, with the value of the most
+     * specific bundle for each key, in key order. A prefix such as "settings.privacy." selects one namespace
+     * of nested keys; the empty prefix selects every key. Finding the keys takes a binary search, so the
+     * time depends on the number of keys returned rather than on the size of the bundle. Values of parents
+     * that aren't strings are left out.
+     *
+     * @param prefix the prefix of the keys
+     * @return an unmodifiable map
+     */
+    public Map<String, String> getValuesWithPrefix(String prefix) {
+        if (prefix == null) {
+            throw new NullPointerException("The prefix is null.");
+        }
+        return prefixIndex().withPrefix(prefix);
+    }
+
+    /**
+     * Returns the prefix index of this bundle and its parents. The index is built again only if the parent
+     * was replaced or the parent's own index changed since this index was built.
+     */
+    PrefixIndex prefixIndex() {
+        PrefixIndex current = prefixIndex;
+        ResourceBundle currentParent = parent;
+        IndexedResourceBundle indexedParent = currentParent instanceof IndexedResourceBundle ?
+                (IndexedResourceBundle) currentParent : null;
+        if (current != null && current.parent == currentParent
+                && (indexedParent == null || current.parentIndex == indexedParent.prefixIndex)) {
+            return current;
+        }
+        PrefixIndex parentIndex = null;
+        if (indexedParent != null) {
+            parentIndex = indexedParent.prefixIndex();
+        } else if (currentParent != null) {
+            parentIndex = indexOf(currentParent);
+        }
+        String[] keys = ownKeys().clone();
+        Arrays.sort(keys);
+        String[] values = new String[keys.length];
+        for (int x = 0; x < keys.length; x++) {
+            values[x] = ownValue(keys[x]);
+        }
+        current = PrefixIndex.build(keys, values, currentParent, parentIndex);
+        prefixIndex = current;
+        return current;
+    }
+
+    /**
+     * Builds the prefix index of a bundle that isn't an IndexedResourceBundle from all of its string values.
+     */
+    private static PrefixIndex indexOf(ResourceBundle bundle) {
+        List<String> keys = new ArrayList<>();
+        for (String key : bundle.keySet()) {
+            if (bundle.getObject(key) instanceof String) {
+                keys.add(key);
+            }
+        }
+        Collections.sort(keys);
+        String[] values = new String[keys.size()];
+        for (int x = 0; x < values.length; x++) {
+            values[x] = bundle.getString(keys.get(x));
+        }
+        return PrefixIndex.build(keys.toArray(new String[keys.size()]), values, null, null);
+    }
+
+    /**
+     * Formats the value of a key as MessageFormat.format would, in the locale of this bundle. The value may
+     * come from a parent bundle.
+     *
+     * @param key the key of a MessageFormat pattern
+     * @param arguments the arguments of the pattern
+     * @return the formatted message
+     * @throws MissingResourceException if neither this bundle nor its parents contain the key
+     * @throws IllegalArgumentException if the value isn't a valid pattern or an argument can't be formatted
+     */
+    public String format(String key, Object... arguments) {
+        MessagePattern message = message(key);
+        if (message.isLiteral()) {
+            return message.getLiteral();
+        }
+        return message.format(new StringBuilder(message.getPattern().length() + 16), arguments).toString();
+    }
+
+    /**
+     * Formats the value of a key as MessageFormat.format would, in the locale of this bundle, and appends
+     * the message to a StringBuilder. Reusing the StringBuilder avoids allocating a String for each message.
+     *
+     * @param target the StringBuilder that receives the message
+     * @param key the key of a MessageFormat pattern
+     * @param arguments the arguments of the pattern
+     * @return the target
+     * @throws MissingResourceException if neither this bundle nor its parents contain the key
+     * @throws IllegalArgumentException if the value isn't a valid pattern or an argument can't be formatted
+     */
+    public StringBuilder format(StringBuilder target, String key, Object... arguments) {
+        return message(key).format(target, arguments);
+    }
+
+    /**
+     * Returns the compiled pattern of a key's value. A compiled pattern is used as long as the key still has
+     * the same value, so a value that changes because a parent bundle was replaced is compiled again.
+     */
+    private MessagePattern message(String key) {
+        String pattern = getString(key);
+        ConcurrentMap<String, MessagePattern> compiled = messages;
+        if (compiled == null) {
+            synchronized (this) {
+                compiled = messages;
+                if (compiled == null) {
+                    compiled = new ConcurrentHashMap<>();
+                    messages = compiled;
+                }
+            }
+        }
+        MessagePattern message = compiled.get(key);
+        if (message == null || !pattern.equals(message.getPattern())) {
+            Locale locale = getLocale();
+            message = MessagePattern.compile(pattern, locale != null ? locale :
+                    Locale.getDefault(Locale.Category.FORMAT));
+            compiled.put(key, message);
+        }
+        return message;
+    }
+
+    /**
+     * Returns the values of this bundle merged with the values of its IndexedResourceBundle parents, where
+     * each key maps to the value of the most specific bundle. The table is computed again only if the
+     * parent was replaced or the parent's own table changed since this table was computed.
+     */
+    StringTable flattenedTable() {
+        FlattenedTable current = flattened;
+        ResourceBundle currentParent = parent;
+        IndexedResourceBundle indexedParent = currentParent instanceof IndexedResourceBundle ?
+                (IndexedResourceBundle) currentParent : null;
+        if (current != null && current.parent == currentParent
+                && (indexedParent == null || current.parentTable == indexedParent.flattened)) {
+            return current.table;
+        }
+        StringTable table;
+        FlattenedTable parentTable = null;
+        if (indexedParent == null) {
+            table = ownTable();
+        } else {
+            StringTable inherited = indexedParent.flattenedTable();
+            parentTable = indexedParent.flattened;
+            String[] keys = ownKeys();
+            if (keys.length == 0) {
+                table = inherited;
+            } else {
+                StringTable.Builder builder = new StringTable.Builder();
+                builder.putAll(inherited);
+                for (String key : keys) {
+                    builder.put(key, ownValue(key));
+                }
+                table = builder.build();
+            }
+        }
+        flattened = new FlattenedTable(currentParent, parentTable, table);
+        return table;
+    }
+
+    private StringTable ownTable() {
+        StringTable table = table();
+        if (table == null) {
+            StringTable.Builder builder = new StringTable.Builder();
+            for (String key : ownKeys()) {
+                builder.put(key, ownValue(key));
+            }
+            table = builder.build();
+        }
+        return table;
+    }
+
+    /**
+     * Returns the keys of this bundle and its parents. The merged key array is computed on the first
+     * call and shared by later calls, so enumerating keys doesn't copy the parent chain again.
+     */
+    @Override
+    public Enumeration<String> getKeys() {
+        return KeyArray.enumeration(allKeys());
+    }
+
+    String[] allKeys() {
+        MergedKeys merged = mergedKeys;
+        ResourceBundle currentParent = parent;
+        if (merged == null || merged.parent != currentParent) {
+            String[] keys;
+            if (currentParent == null) {
+                keys = ownKeys();
+            } else if (currentParent instanceof IndexedResourceBundle) {
+                keys = KeyArray.merge(ownKeys(),
+                        Arrays.asList(((IndexedResourceBundle) currentParent).allKeys()));
+            } else {
+                keys = KeyArray.merge(ownKeys(), currentParent.keySet());
+            }
+            merged = new MergedKeys(currentParent, keys);
+            mergedKeys = merged;
+        }
+        return merged.keys;
+    }
+
+    /**
+     * Remembers the parent that the merged keys were computed from, so that the keys are computed again
+     * if the bundle is given a different parent.
+     */
+    private static final class MergedKeys {
+        final ResourceBundle parent;
+        final String[] keys;
+
+        MergedKeys(ResourceBundle parent, String[] keys) {
+            this.parent = parent;
+            this.keys = keys;
+        }
+    }
+
+    /**
+     * Remembers the parent and the parent's flattened table that a flattened table was built on.
+     */
+    private static final class FlattenedTable {
+        final ResourceBundle parent;
+        final FlattenedTable parentTable;
+        final StringTable table;
+
+        FlattenedTable(ResourceBundle parent, FlattenedTable parentTable, StringTable table) {
+            this.parent = parent;
+            this.parentTable = parentTable;
+            this.table = table;
+        }
+    }
+}
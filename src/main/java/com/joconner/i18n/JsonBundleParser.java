@@ -0,0 +1,360 @@
+package com.joconner.i18n;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * JsonBundleParser is a streaming, pull-based parser for the JSON bundle format described in
+ * JsonResourceBundle and for the multi-locale files described in JsonLocaleFile. It reads the text once,
+ * puts every key's string value straight into a StringTable.Builder, and records the text of "@meta"
+ * objects for MetadataIndex. No JSON tree is built: members that don't contribute a value, such as numbers,
+ * arrays, or unknown object fields, are skipped character by character without allocating.
+ * <p>
+ * With nested keys, an object value is also a namespace: each of its string members and object members is a
+ * key of its own, named with the object's key, a dot, and the member's name. The members "value" and "@meta"
+ * keep their meaning as the value and the metadata of the object's own key, so
+ * {"menu": {"value": "Menu", "file": {"open": "Open"}}} has the keys "menu" and "menu.file.open".
+ *
+ * @author joconner
+ */
+final class JsonBundleParser {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private final boolean nestedKeys;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder text = new StringBuilder();
+    private int position;
+    private int limit;
+    private int line = 1;
+    private int current;
+
+    JsonBundleParser(Reader reader) {
+        this(reader, false);
+    }
+
+    /**
+     * Creates a parser that reads object values as namespaces of nested keys if nestedKeys is true.
+     */
+    JsonBundleParser(Reader reader, boolean nestedKeys) {
+        this.reader = reader;
+        this.nestedKeys = nestedKeys;
+    }
+
+    /**
+     * Parses a bundle.
+     *
+     * @param values receives the key-value pairs
+     * @param metadata receives the text of each key's "@meta" object
+     * @throws IOException if the text can't be read or isn't a JSON bundle
+     */
+    void parse(StringTable.Builder values, MetadataIndex.Builder metadata) throws IOException {
+        read();
+        skipWhitespace();
+        if (current != '{') {
+            throw new IOException("The requested file is not the correct format for json bundles.");
+        }
+        readBundleObject(values, metadata);
+        expectEnd();
+    }
+
+    /**
+     * Parses a multi-locale file, an object whose members map language tags to bundle objects. Each bundle
+     * object is parsed into its own table as parse would parse a bundle file.
+     *
+     * @param pool the pool that deduplicates keys and values, or null
+     * @param locales receives the table and metadata of each language tag
+     * @throws IOException if the text can't be read or isn't a multi-locale JSON file
+     */
+    void parseLocales(StringPool pool, JsonLocaleFile.Builder locales) throws IOException {
+        read();
+        skipWhitespace();
+        if (current != '{') {
+            throw new IOException("The requested file is not the correct format for multi-locale json bundles.");
+        }
+        read();
+        skipWhitespace();
+        if (current != '}') {
+            do {
+                skipWhitespace();
+                int tagLine = line;
+                String tag = readMemberName();
+                if (current != '{') {
+                    throw error("Expected a bundle object for \"" + tag + "\"");
+                }
+                StringTable.Builder values = new StringTable.Builder(pool);
+                MetadataIndex.Builder metadata = new MetadataIndex.Builder();
+                readBundleObject(values, metadata);
+                if (!locales.add(tag, values.build(), metadata.build())) {
+                    throw new IOException("Invalid language tag \"" + tag + "\" at line " + tagLine +
+                            " of the json bundle.");
+                }
+                skipWhitespace();
+            } while (readIf(','));
+            expect('}');
+        } else {
+            read();
+        }
+        expectEnd();
+    }
+
+    /**
+     * Reads the members of a bundle object, starting at its opening brace.
+     */
+    private void readBundleObject(StringTable.Builder values, MetadataIndex.Builder metadata) throws IOException {
+        read();
+        skipWhitespace();
+        if (current != '}') {
+            do {
+                skipWhitespace();
+                String key = readMemberName();
+                if (current == '"') {
+                    values.put(key, readString());
+                } else if (current == '{') {
+                    readValueObject(key, values, metadata);
+                } else {
+                    skipValue(null);
+                }
+                skipWhitespace();
+            } while (readIf(','));
+            expect('}');
+        } else {
+            read();
+        }
+    }
+
+    private void expectEnd() throws IOException {
+        skipWhitespace();
+        if (current != -1) {
+            throw error("Unexpected character after the bundle object");
+        }
+    }
+
+    /**
+     * Reads an object value, which contributes its "value" string and its "@meta" object, and with nested
+     * keys, the keys of its other members.
+     */
+    private void readValueObject(String key, StringTable.Builder values, MetadataIndex.Builder metadata)
+            throws IOException {
+        String value = null;
+        String meta = null;
+        read();
+        skipWhitespace();
+        if (current == '}') {
+            read();
+            return;
+        }
+        do {
+            skipWhitespace();
+            String name = readMemberName();
+            if (name.equals("value") && current == '"') {
+                value = readString();
+            } else if (name.equals("@meta") && current == '{') {
+                StringBuilder capture = new StringBuilder();
+                skipValue(capture);
+                meta = capture.toString();
+            } else if (nestedKeys && current == '"') {
+                values.put(key + '.' + name, readString());
+            } else if (nestedKeys && current == '{') {
+                readValueObject(key + '.' + name, values, metadata);
+            } else {
+                skipValue(null);
+            }
+            skipWhitespace();
+        } while (readIf(','));
+        expect('}');
+        if (value != null) {
+            values.put(key, value);
+            if (meta != null) {
+                metadata.add(key, meta);
+            }
+        }
+    }
+
+    /**
+     * Reads a member name and the colon after it, and positions the parser at the member's value.
+     */
+    private String readMemberName() throws IOException {
+        if (current != '"') {
+            throw error("Expected a member name");
+        }
+        String name = readString();
+        skipWhitespace();
+        expect(':');
+        skipWhitespace();
+        return name;
+    }
+
+    /**
+     * Skips any JSON value. If capture isn't null, the skipped text is appended to it. Skipped values are
+     * only checked for balanced nesting and terminated strings.
+     */
+    private void skipValue(StringBuilder capture) throws IOException {
+        if (current == '"') {
+            skipString(capture);
+        } else if (current == '{' || current == '[') {
+            int depth = 0;
+            do {
+                if (current == '"') {
+                    skipString(capture);
+                    continue;
+                }
+                if (current == -1) {
+                    throw error("Unexpected end of input");
+                }
+                if (current == '{' || current == '[') {
+                    depth++;
+                } else if (current == '}' || current == ']') {
+                    depth--;
+                }
+                if (capture != null) {
+                    capture.append((char) current);
+                }
+                read();
+            } while (depth > 0);
+        } else {
+            if (isValueEnd(current) || current == ':') {
+                throw error("Expected a value");
+            }
+            while (!isValueEnd(current) && !isWhitespace(current)) {
+                if (capture != null) {
+                    capture.append((char) current);
+                }
+                read();
+            }
+        }
+    }
+
+    private static boolean isValueEnd(int c) {
+        return c == -1 || c == ',' || c == '}' || c == ']';
+    }
+
+    private void skipString(StringBuilder capture) throws IOException {
+        if (capture != null) {
+            capture.append('"');
+        }
+        read();
+        while (current != '"') {
+            if (current == -1 || current < 0x20) {
+                throw error("Unterminated string");
+            }
+            if (current == '\\') {
+                if (capture != null) {
+                    capture.append('\\');
+                }
+                read();
+                if (current == -1) {
+                    throw error("Unterminated string");
+                }
+            }
+            if (capture != null) {
+                capture.append((char) current);
+            }
+            read();
+        }
+        if (capture != null) {
+            capture.append('"');
+        }
+        read();
+    }
+
+    private String readString() throws IOException {
+        text.setLength(0);
+        read();
+        while (current != '"') {
+            if (current == -1 || current < 0x20) {
+                throw error("Unterminated string");
+            }
+            if (current == '\\') {
+                read();
+                switch (current) {
+                    case '"':
+                    case '/':
+                    case '\\':
+                        text.append((char) current);
+                        break;
+                    case 'b':
+                        text.append('\b');
+                        break;
+                    case 'f':
+                        text.append('\f');
+                        break;
+                    case 'n':
+                        text.append('\n');
+                        break;
+                    case 'r':
+                        text.append('\r');
+                        break;
+                    case 't':
+                        text.append('\t');
+                        break;
+                    case 'u':
+                        int codeUnit = 0;
+                        for (int x = 0; x < 4; x++) {
+                            read();
+                            int digit = Character.digit(current, 16);
+                            if (digit < 0) {
+                                throw error("Invalid unicode escape");
+                            }
+                            codeUnit = codeUnit * 16 + digit;
+                        }
+                        text.append((char) codeUnit);
+                        break;
+                    default:
+                        throw error("Invalid escape sequence");
+                }
+            } else {
+                text.append((char) current);
+            }
+            read();
+        }
+        read();
+        return text.toString();
+    }
+
+    private void expect(char c) throws IOException {
+        if (current != c) {
+            throw error("Expected '" + c + "'");
+        }
+        read();
+    }
+
+    private boolean readIf(char c) throws IOException {
+        if (current != c) {
+            return false;
+        }
+        read();
+        return true;
+    }
+
+    private void skipWhitespace() throws IOException {
+        while (isWhitespace(current)) {
+            read();
+        }
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    private void read() throws IOException {
+        if (position == limit) {
+            limit = reader.read(buffer, 0, BUFFER_SIZE);
+            position = 0;
+            if (limit == -1) {
+                limit = 0;
+                current = -1;
+                return;
+            }
+        }
+        if (current == '\n') {
+            line++;
+        }
+        current = buffer[position++];
+    }
+
+    private IOException error(String message) {
+        return new IOException(message + " at line " + line + " of the json bundle.");
+    }
+}
@@ -0,0 +1,125 @@
+package com.joconner.i18n;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.*;
+
+/**
+ * JsonLocaleFile holds the parsed contents of a multi-locale JSON file, in which one file contains the
+ * bundles of every locale of a base name. The members of the file's object are BCP-47 language tags, and
+ * each tag's value is a bundle object in the format described in JsonResourceBundle. The root bundle is
+ * stored under "und" or "root":
+ *
+ * {
+ *     "und": {
+ *         "GREETING": "Hello!"
+ *     },
+ *     "fr": {
+ *         "GREETING": "Bonjour !"
+ *     },
+ *     "fr-CA": {
+ *         "GREETING": {
+ *             "value": "Allô !",
+ *             "@meta": { "tone": "casual" }
+ *         }
+ *     }
+ * }
+ *
+ * The file is read once. Each locale's table is built when the file is parsed, and the bundles that
+ * newBundle creates are views that share the table of their locale.
+ *
+ * @author joconner
+ */
+final class JsonLocaleFile {
+
+    private final Map<Locale, Section> sections;
+    private final Object readStamp;
+
+    private JsonLocaleFile(Map<Locale, Section> sections, Object readStamp) {
+        this.sections = sections;
+        this.readStamp = readStamp;
+    }
+
+    /**
+     * Reads a multi-locale file.
+     *
+     * @param reader the text of the file
+     * @param pool the pool that deduplicates keys and values, or null
+     * @param nestedKeys true to read object values as namespaces of nested keys
+     * @param readStamp the control's stamp of the file from before reading started, or null
+     * @throws IOException if the text can't be read, isn't a multi-locale JSON file, or contains an
+     *     invalid language tag
+     */
+    static JsonLocaleFile read(Reader reader, StringPool pool, boolean nestedKeys, Object readStamp)
+            throws IOException {
+        Builder builder = new Builder();
+        new JsonBundleParser(reader, nestedKeys).parseLocales(pool, builder);
+        return new JsonLocaleFile(builder.sections, readStamp);
+    }
+
+    /**
+     * Returns the control's stamp of the file from before the file was read, or null.
+     */
+    Object getReadStamp() {
+        return readStamp;
+    }
+
+    /**
+     * Returns the locales that have a bundle in the file.
+     */
+    Set<Locale> getLocales() {
+        return Collections.unmodifiableSet(sections.keySet());
+    }
+
+    /**
+     * Returns a new bundle that shares the table of a locale, or null if the file has no bundle for the
+     * locale. Every call returns a new bundle, because ResourceBundle.getBundle sets the parent of the
+     * bundles it loads.
+     */
+    JsonResourceBundle newBundle(Locale locale) {
+        Section section = sections.get(locale);
+        if (section == null) {
+            return null;
+        }
+        JsonResourceBundle bundle = new JsonResourceBundle(section.values, section.metadata);
+        bundle.readStamp = readStamp;
+        return bundle;
+    }
+
+    /**
+     * Collects the locale sections of a file as the parser reads them. If a language tag appears more
+     * than once, the last section wins.
+     */
+    static final class Builder {
+        private final Map<Locale, Section> sections = new HashMap<>();
+
+        /**
+         * Adds the bundle of a language tag, and returns false if the tag isn't a well-formed BCP-47
+         * language tag.
+         */
+        boolean add(String tag, StringTable values, MetadataIndex metadata) {
+            Locale locale;
+            if (tag.equalsIgnoreCase("root")) {
+                locale = Locale.ROOT;
+            } else {
+                try {
+                    locale = new Locale.Builder().setLanguageTag(tag).build();
+                } catch (IllformedLocaleException e) {
+                    return false;
+                }
+            }
+            sections.put(locale, new Section(values, metadata));
+            return true;
+        }
+    }
+
+    private static final class Section {
+        final StringTable values;
+        final MetadataIndex metadata;
+
+        Section(StringTable values, MetadataIndex metadata) {
+            this.values = values;
+            this.metadata = metadata;
+        }
+    }
+}
@@ -1,9 +1,7 @@
 package com.joconner.i18n;
 
 
-import com.eclipsesource.json.Json;
 import com.eclipsesource.json.JsonObject;
-import com.eclipsesource.json.JsonValue;
 
 import java.io.*;
 import java.util.*;
@@ -29,15 +27,20 @@ import java.util.*;
  *     }
  * }
  *
+ * Only the "value" strings are loaded into the bundle's lookup table. The "@meta" objects are kept as compact
+ * text and are parsed on demand by getMetadata.
+ *
  * You use and create JsonResourceBundle objects by
  * 1) create a JSON resource file as described above
  * 2) create a ResourceBundle using ResourceBundle.getBundle and provide a JsonResourceBundleControl
  *
  * @author joconner
  */
-public class JsonResourceBundle extends ResourceBundle {
+public class JsonResourceBundle extends IndexedResourceBundle {
 
-    private JsonObject jsonResource;
+    private StringTable resources = StringTable.EMPTY;
+    private Set<String> ownKeySet = KeyArray.asSet(StringTable.EMPTY);
+    private MetadataIndex metadata = MetadataIndex.EMPTY;
 
     private JsonResourceBundle() {
 
@@ -45,64 +48,103 @@ public class JsonResourceBundle extends ResourceBundle {
 
     /**
      * Constructor will typically be called from a ResourceBundle.Control subclass, specifically the
-     * JsonResourceBundleControl.
+     * JsonResourceBundleControl. The text is parsed in a single streaming pass that puts every key's
+     * final string directly into the bundle's lookup table; no JSON tree is built.
      *
      * @param reader
      * @throws IOException
      */
     public JsonResourceBundle(Reader reader) throws IOException {
-        JsonValue jsonValue = null;
+        this(reader, null);
+    }
+
+    /**
+     * Creates a bundle whose keys and values are deduplicated through a shared string pool.
+     *
+     * @param reader
+     * @param pool the pool that deduplicates keys and values, or null
+     * @throws IOException
+     */
+    public JsonResourceBundle(Reader reader, StringPool pool) throws IOException {
+        this(reader, pool, false);
+    }
 
+    /**
+     * Creates a bundle that reads object values as namespaces of nested keys if nestedKeys is true. A
+     * nested key is named with the keys of its enclosing objects and its own name, separated by dots:
+     * in {"menu": {"file": {"open": "Open"}}}, the key of "Open" is "menu.file.open". An object's "value"
+     * and "@meta" members are still the value and metadata of the object's own key.
+     *
+     * @param reader
+     * @param pool the pool that deduplicates keys and values, or null
+     * @param nestedKeys true to read nested keys
+     * @throws IOException
+     */
+    public JsonResourceBundle(Reader reader, StringPool pool, boolean nestedKeys) throws IOException {
         if (reader == null) {
             throw new NullPointerException("Reader is null.");
         }
-        jsonValue = Json.parse(reader);
-        if (jsonValue.isObject()) {
-            jsonResource = (JsonObject) jsonValue;
-        } else {
-            throw new IOException("The requested file is not the correct format for json bundles.");
-        }
+        StringTable.Builder values = new StringTable.Builder(pool);
+        MetadataIndex.Builder metadataBuilder = new MetadataIndex.Builder();
+        new JsonBundleParser(reader, nestedKeys).parse(values, metadataBuilder);
+        resources = values.build();
+        ownKeySet = KeyArray.asSet(resources);
+        metadata = metadataBuilder.build();
+    }
+
+    /**
+     * Creates a bundle over a table and metadata that were already parsed, such as one locale of a
+     * JsonLocaleFile.
+     */
+    JsonResourceBundle(StringTable resources, MetadataIndex metadata) {
+        this.resources = resources;
+        this.ownKeySet = KeyArray.asSet(resources);
+        this.metadata = metadata;
     }
 
     @Override
-    protected Object handleGetObject(String key) {
+    String ownValue(String key) {
+        return resources.get(key);
+    }
+
+    /**
+     * Returns the "@meta" object of a key, such as a translator's maxLength or tone. Metadata isn't
+     * parsed when the bundle loads; each key's metadata is parsed the first time it is requested. If
+     * this bundle doesn't contain the key, the metadata of the parent bundle that provides the key's
+     * value is returned.
+     *
+     * @param key the key of a value
+     * @return an unmodifiable metadata object, or null if the key has no metadata
+     */
+    public JsonObject getMetadata(String key) {
         if (key == null) {
             throw new NullPointerException("The key is null.");
         }
-        JsonValue value = jsonResource.get(key);
-        String strValue = null;
-        if (value != null) {
-            if (value.isString()) {
-                strValue = value.asString();
-            } else if (value.isObject()) {
-                JsonObject valueObject = (JsonObject) value;
-                strValue = valueObject.getString("value", null);
-            }
+        if (resources.containsKey(key)) {
+            return metadata.get(key);
         }
-        return strValue;
+        return parent instanceof JsonResourceBundle ? ((JsonResourceBundle) parent).getMetadata(key) : null;
     }
 
+    /**
+     * Returns an unmodifiable view of the keys contained in this bundle only.
+     */
     @Override
-    public Enumeration<String> getKeys() {
-        Set<String> keySet = new HashSet<>();
-        keySet.addAll(parent.keySet());
-        if (jsonResource != null) {
-            keySet.addAll(jsonResource.names());
-        }
-
-        return new Enumeration<String>() {
-            Iterator<String> iterator = keySet.iterator();
+    protected Set<String> handleKeySet() {
+        return ownKeySet;
+    }
 
-            @Override
-            public boolean hasMoreElements() {
-                return iterator.hasNext();
-            }
+    @Override
+    String[] ownKeys() {
+        return resources.keys();
+    }
 
-            @Override
-            public String nextElement() {
-                return iterator.next();
-            }
-        };
+    /**
+     * Returns the resolved key-value pairs of this bundle only.
+     */
+    @Override
+    StringTable table() {
+        return resources;
     }
 
 }
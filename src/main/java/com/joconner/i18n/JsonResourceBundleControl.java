@@ -3,9 +3,9 @@ package com.joconner.i18n;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.net.URL;
-import java.net.URLConnection;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 
 /**
@@ -22,19 +22,43 @@ import java.util.*;
  * com.example.res.es-mx.FOO
  *
  * Resource subpackage names should be lowercase BCP-47 language tag identifiers.
+ * <p>
+ * With setUseLocaleFiles, the control also reads multi-locale files, in which one file such as
+ * com/example/res/Foo.locales.json holds the bundles of every locale of the base name. The file is read
+ * once, and the bundles of all its locales share the parsed tables. See JsonLocaleFile for the format.
  *
  * @author joconner
  */
 public class JsonResourceBundleControl extends PackageableResourceControl {
+    /**
+     * The format name and file suffix of multi-locale JSON files.
+     */
+    public static final String FORMAT_JSON_LOCALES = "locales.json";
     private static final String JSON_SUFFIX = "json";
     private static final List<String> FORMAT_JSON = Arrays.asList(JSON_SUFFIX);
     private static final List<String> supportedFormats;
+    private static final List<String> compiledFormats;
+    private static final List<String> localeFormats;
+    private static final List<String> compiledLocaleFormats;
 
     static {
         supportedFormats = new ArrayList<>(ResourceBundle.Control.FORMAT_DEFAULT);
         supportedFormats.add(JSON_SUFFIX);
+        compiledFormats = new ArrayList<>();
+        compiledFormats.add(FORMAT_COMPILED);
+        compiledFormats.addAll(supportedFormats);
+        localeFormats = new ArrayList<>();
+        localeFormats.add(FORMAT_JSON_LOCALES);
+        localeFormats.addAll(supportedFormats);
+        compiledLocaleFormats = new ArrayList<>();
+        compiledLocaleFormats.add(FORMAT_COMPILED);
+        compiledLocaleFormats.addAll(localeFormats);
     }
 
+    private volatile boolean useLocaleFiles;
+    private volatile boolean nestedKeys;
+    private final Map<ClassLoader, ConcurrentMap<String, JsonLocaleFile>> localeFiles = new WeakHashMap<>();
+
     /**
      * Creates a new JsonResourceBundleControl that reads localized bundle files
      * from JSON files instead of property files.
@@ -56,18 +80,94 @@ public class JsonResourceBundleControl extends PackageableResourceControl {
     /**
      * Returns the list of bundle file formats supported by
      * JsonResourceBundle. JsonResourceBundle supports bundle formats in the
-     * following order "java.class", "java.properties", and "json".
+     * following order "java.class", "java.properties", and "json". If the control uses multi-locale
+     * files, "locales.json" comes before them, and if the control uses compiled bundles and doesn't read
+     * nested keys, "erb" is the first format in the list. If the control has a manifest, only the formats
+     * of the listed bundles of the base name are returned.
      *
      * @param baseName, the basename of the resource bundle.
      * @return a string list of supported formats
      */
     @Override
     public List<String> getFormats(String baseName) {
-        return supportedFormats;
+        List<String> formats;
+        // The compiler reads JSON bundles without nested keys, so compiled bundles would lack them.
+        boolean compiled = useCompiledBundles && !nestedKeys;
+        if (useLocaleFiles) {
+            formats = compiled ? compiledLocaleFormats : localeFormats;
+        } else {
+            formats = compiled ? compiledFormats : supportedFormats;
+        }
+        return filterFormats(baseName, formats);
+    }
+
+    /**
+     * Returns true if this control looks for multi-locale JSON files.
+     */
+    public boolean isUseLocaleFiles() {
+        return useLocaleFiles;
+    }
+
+    /**
+     * If useLocaleFiles is true, the control adds the FORMAT_JSON_LOCALES format to its formats, after
+     * FORMAT_COMPILED if the control uses compiled bundles and before all other formats. A base name
+     * such as com.example.res.Foo then has its bundles in com/example/res/Foo.locales.json, whatever the
+     * package-based setting of the control. Locales that the file doesn't contain are looked up in the
+     * other formats.
+     */
+    public void setUseLocaleFiles(boolean useLocaleFiles) {
+        this.useLocaleFiles = useLocaleFiles;
     }
 
     /**
-     * See the Java platforms default description of this method.
+     * Returns true if the JSON bundles that this control loads read object values as namespaces of nested
+     * keys.
+     */
+    public boolean isNestedKeys() {
+        return nestedKeys;
+    }
+
+    /**
+     * If nestedKeys is true, the JSON bundles and multi-locale files that this control loads read object
+     * values as namespaces, whose members are keys named with dots, such as "settings.privacy.title". Use
+     * IndexedResourceBundle.getValuesWithPrefix to get the keys of one namespace. Bundles that are already
+     * loaded aren't affected.
+     * <p>
+     * The BundleCompiler doesn't read nested keys, so a control that reads nested keys doesn't load compiled
+     * bundles, even if useCompiledBundles is true.
+     */
+    public void setNestedKeys(boolean nestedKeys) {
+        this.nestedKeys = nestedKeys;
+        synchronized (localeFiles) {
+            localeFiles.clear();
+        }
+    }
+
+    /**
+     * Forgets the cached names and the multi-locale files that were read.
+     */
+    @Override
+    public void clearNameCache() {
+        super.clearNameCache();
+        synchronized (localeFiles) {
+            localeFiles.clear();
+        }
+    }
+
+    /**
+     * Returns the name of the multi-locale file of a base name for FORMAT_JSON_LOCALES; otherwise returns
+     * the resource name of the locale's bundle.
+     */
+    @Override
+    String bundleResourceName(String baseName, Locale locale, String suffix) {
+        if (suffix.equals(FORMAT_JSON_LOCALES)) {
+            return resourceName(baseName, suffix);
+        }
+        return super.bundleResourceName(baseName, locale, suffix);
+    }
+
+    /**
+     * Loads a bundle for newBundle. See the Java platforms default description of newBundle.
      * http://docs.oracle.com/javase/8/docs/api/java/util/ResourceBundle.Control.html
      * @param baseName
      * @param locale
@@ -80,53 +180,89 @@ public class JsonResourceBundleControl extends PackageableResourceControl {
      * @throws IOException
      */
     @Override
-    public ResourceBundle newBundle(String baseName, Locale locale, String format, ClassLoader loader, boolean reload)
+    ResourceBundle loadBundle(String baseName, Locale locale, String format, ClassLoader loader, boolean reload)
             throws IllegalAccessException, InstantiationException, IOException {
-
+        long start = System.nanoTime();
+        long bytes = -1;
         ResourceBundle bundle = null;
-        if (format.equals(JSON_SUFFIX)) {
+        if (isUnlisted(baseName, locale, format)) {
+            // The manifest says that the bundle doesn't exist.
+        } else if (format.equals(JSON_SUFFIX)) {
             String bundleName = toBundleName(baseName, locale);
-            final String resourceName = toResourceName(bundleName, JSON_SUFFIX);
-            if (resourceName == null) {
-                return bundle;
-            }
-            final ClassLoader classLoader = loader;
-            final boolean reloadFlag = reload;
-            InputStream is = null;
-
-            if (reloadFlag) {
-                is = reload(resourceName, classLoader);
-            } else {
-                is = classLoader.getResourceAsStream(resourceName);
-            }
-
-            InputStreamReader reader = new InputStreamReader(is, "UTF-8");
-            if (reader != null) {
+            final String resourceName = resourceName(bundleName, JSON_SUFFIX);
+            InputStream is = resourceName == null ? null : openResource(resourceName, loader, reload);
+            if (is != null) {
+                InputStreamReader reader = new InputStreamReader(is, "UTF-8");
                 try {
-                    bundle = new JsonResourceBundle(reader);
+                    bundle = new JsonResourceBundle(reader, stringPool, nestedKeys);
                 } finally {
                     reader.close();
                 }
+                bytes = CountingInputStream.bytesRead(is);
+            }
+        } else if (format.equals(FORMAT_JSON_LOCALES)) {
+            long[] fileBytes = {0};
+            JsonLocaleFile file = localeFile(baseName, loader, reload, fileBytes);
+            bundle = file == null ? null : file.newBundle(locale);
+            bytes = fileBytes[0];
+        } else if (format.equals(FORMAT_COMPILED)) {
+            bundle = newCompiledBundle(toBundleName(baseName, locale), loader, reload);
+            if (bundle != null) {
+                bytes = ((CompiledResourceBundle) bundle).byteSize();
             }
         } else {
-            bundle = super.newBundle(baseName, locale, format, loader, reload);
+            watchBundle(toBundleName(baseName, locale), format, loader);
+            bundle = newDefaultBundle(baseName, locale, format, loader, reload);
         }
-        return bundle;
+        return recordLoad(bundle, format, locale, reload, start, bytes);
     }
 
-    InputStream reload(String resourceName, ClassLoader classLoader) throws IOException {
-        InputStream stream = null;
-        URL url = classLoader.getResource(resourceName);
-        if (url != null) {
-            URLConnection connection = url.openConnection();
-            if (connection != null) {
-                // Disable caches to get fresh data for
-                // reloading.
-                connection.setUseCaches(false);
-                stream = connection.getInputStream();
+    /**
+     * Returns the multi-locale file of a base name, reading it if it wasn't read yet. When a bundle is
+     * reloaded, the file is read again unless hot reload mode shows that the file didn't change since
+     * it was read. Each file is read by one thread while other threads wait for it.
+     *
+     * @param bytesRead receives the number of bytes read, which is 0 if the file was read before, or -1 if
+     *     unknown
+     * @return the file, or null if the class loader doesn't have it
+     */
+    private JsonLocaleFile localeFile(String baseName, ClassLoader loader, boolean reload, long[] bytesRead)
+            throws IOException {
+        String resourceName = bundleResourceName(baseName, Locale.ROOT, FORMAT_JSON_LOCALES);
+        ConcurrentMap<String, JsonLocaleFile> files;
+        synchronized (localeFiles) {
+            files = localeFiles.get(loader);
+            if (files == null) {
+                files = new ConcurrentHashMap<>();
+                localeFiles.put(loader, files);
+            }
+        }
+        JsonLocaleFile file = files.get(resourceName);
+        if (file != null && !reload) {
+            return file;
+        }
+        synchronized (files) {
+            file = files.get(resourceName);
+            if (file != null &&
+                    (!reload || (hotReload && !changedSince(resourceName, loader, file.getReadStamp())))) {
+                return file;
+            }
+            Object stamp = readStamp(resourceName, loader);
+            InputStream is = openResource(resourceName, loader, reload);
+            if (is == null) {
+                files.remove(resourceName);
+                return null;
+            }
+            InputStreamReader reader = new InputStreamReader(is, "UTF-8");
+            try {
+                file = JsonLocaleFile.read(reader, stringPool, nestedKeys, stamp);
+            } finally {
+                reader.close();
             }
+            bytesRead[0] = CountingInputStream.bytesRead(is);
+            files.put(resourceName, file);
+            return file;
         }
-        return stream;
     }
 
 
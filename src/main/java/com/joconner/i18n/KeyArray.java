@@ -0,0 +1,118 @@
+package com.joconner.i18n;
+
+import java.util.*;
+
+/**
+ * KeyArray provides read-only Set and Enumeration views over an immutable array of bundle keys.
+ * The views don't copy the array, so bundles can compute their keys once and hand them out
+ * on every call to getKeys or handleKeySet.
+ *
+ * @author joconner
+ */
+final class KeyArray {
+
+    private KeyArray() {
+    }
+
+    /**
+     * Returns an unmodifiable Set over the keys of a table.
+     */
+    static Set<String> asSet(StringTable table) {
+        return new TableKeySet(table);
+    }
+
+    /**
+     * Returns an unmodifiable Set over an array of keys that is sorted in natural String order.
+     */
+    static Set<String> asSortedSet(String[] sortedKeys) {
+        return new SortedArrayKeySet(sortedKeys);
+    }
+
+    /**
+     * Returns an Enumeration over the keys, in array order.
+     */
+    static Enumeration<String> enumeration(String[] keys) {
+        return new ArrayEnumeration(keys);
+    }
+
+    /**
+     * Merges the keys of a bundle with the keys of its parent chain. The result holds every key once,
+     * with the bundle's own keys first.
+     */
+    static String[] merge(String[] ownKeys, Collection<String> parentKeys) {
+        if (parentKeys.isEmpty()) {
+            return ownKeys;
+        }
+        Set<String> merged = new LinkedHashSet<>(Arrays.asList(ownKeys));
+        merged.addAll(parentKeys);
+        return merged.toArray(new String[merged.size()]);
+    }
+
+    private static final class TableKeySet extends AbstractSet<String> {
+        private final StringTable table;
+
+        TableKeySet(StringTable table) {
+            this.table = table;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof String && table.containsKey((String) o);
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return Arrays.asList(table.keys()).iterator();
+        }
+
+        @Override
+        public int size() {
+            return table.size();
+        }
+    }
+
+    private static final class SortedArrayKeySet extends AbstractSet<String> {
+        private final String[] keys;
+
+        SortedArrayKeySet(String[] keys) {
+            this.keys = keys;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof String && Arrays.binarySearch(keys, o) >= 0;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return Arrays.asList(keys).iterator();
+        }
+
+        @Override
+        public int size() {
+            return keys.length;
+        }
+    }
+
+    private static final class ArrayEnumeration implements Enumeration<String> {
+        private final String[] keys;
+        private int index;
+
+        ArrayEnumeration(String[] keys) {
+            this.keys = keys;
+        }
+
+        @Override
+        public boolean hasMoreElements() {
+            return index < keys.length;
+        }
+
+        @Override
+        public String nextElement() {
+            if (index >= keys.length) {
+                throw new NoSuchElementException();
+            }
+            return keys[index++];
+        }
+    }
+}
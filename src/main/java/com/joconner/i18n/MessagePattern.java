@@ -0,0 +1,278 @@
+package com.joconner.i18n;
+
+import java.text.*;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * MessagePattern is a message pattern in the syntax of java.text.MessageFormat that was parsed once and can be
+ * formatted any number of times by any number of threads. The pattern is split into its literal text and its
+ * format elements when it's compiled, so formatting appends the literals and the formatted arguments to a
+ * StringBuilder without parsing the pattern again.
+ * <p>
+ * The output is the output of MessageFormat.format: an argument without a format type is formatted as a
+ * number, a date, or with toString, a missing argument is written as its element, such as {1}, and a choice
+ * format whose result contains a format element is formatted again with the arguments. MessageFormat's
+ * Format objects aren't thread-safe, so each thread formats with its own copies of the Formats, which it
+ * keeps in a small cache that all patterns share. Patterns whose elements need no Format, such as {0} with
+ * a string argument, don't use the cache. The patterns in the results of a choice format are compiled once
+ * and shared.
+ *
+ * @author joconner
+ */
+final class MessagePattern {
+
+    private final String pattern;
+    private final Locale locale;
+    private final String[] literals;
+    private final int[] argumentIndexes;
+    private final Format[] formats;
+    private final ConcurrentMap<String, MessagePattern> choicePatterns;
+
+    private static final ThreadLocal<ThreadFormats> THREAD_FORMATS = new ThreadLocal<>();
+    private static final ConcurrentMap<Locale, NumberFormat> NUMBER_FORMATS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Locale, DateFormat> DATE_FORMATS = new ConcurrentHashMap<>();
+
+    private MessagePattern(String pattern, Locale locale, String[] literals, int[] argumentIndexes,
+                           Format[] formats) {
+        this.pattern = pattern;
+        this.locale = locale;
+        this.literals = literals;
+        this.argumentIndexes = argumentIndexes;
+        this.formats = formats;
+        boolean hasChoice = false;
+        for (Format format : formats) {
+            hasChoice |= format instanceof ChoiceFormat;
+        }
+        choicePatterns = hasChoice ? new ConcurrentHashMap<String, MessagePattern>() : null;
+    }
+
+    /**
+     * The copies of Formats that one thread uses, keyed by the identity of the Format they were cloned
+     * from. The cache has a fixed number of slots, so a thread keeps at most that many copies, and
+     * references at most that many Formats of patterns that are no longer used.
+     */
+    private static final class ThreadFormats {
+        private static final int SLOTS = 128;
+        private final Format[] prototypes = new Format[SLOTS];
+        private final Format[] copies = new Format[SLOTS];
+
+        Format copyOf(Format prototype) {
+            // Each Format has two candidate slots; the most recently cloned copy takes the first.
+            int slot = System.identityHashCode(prototype) & (SLOTS - 1);
+            int next = (slot + 1) & (SLOTS - 1);
+            if (prototypes[slot] == prototype) {
+                return copies[slot];
+            }
+            if (prototypes[next] == prototype) {
+                return copies[next];
+            }
+            prototypes[next] = prototypes[slot];
+            copies[next] = copies[slot];
+            Format copy = (Format) prototype.clone();
+            prototypes[slot] = prototype;
+            copies[slot] = copy;
+            return copy;
+        }
+    }
+
+    /**
+     * Returns true if the calling thread has a cache of Format copies.
+     */
+    static boolean hasThreadFormats() {
+        return THREAD_FORMATS.get() != null;
+    }
+
+    /**
+     * Returns the calling thread's copy of a Format. A ChoiceFormat is returned as it is, because formatting
+     * only reads its limits and choices.
+     */
+    private static Format threadCopy(Format prototype) {
+        if (prototype instanceof ChoiceFormat) {
+            return prototype;
+        }
+        ThreadFormats copies = THREAD_FORMATS.get();
+        if (copies == null) {
+            copies = new ThreadFormats();
+            THREAD_FORMATS.set(copies);
+        }
+        return copies.copyOf(prototype);
+    }
+
+    /**
+     * Compiles a pattern.
+     *
+     * @throws IllegalArgumentException if the pattern isn't a valid MessageFormat pattern
+     */
+    static MessagePattern compile(String pattern, Locale locale) {
+        // MessageFormat checks the pattern and creates the Format of each element.
+        Format[] formats = new MessageFormat(pattern, locale).getFormats();
+        List<String> literals = new ArrayList<>();
+        int[] argumentIndexes = new int[formats.length];
+        StringBuilder literal = new StringBuilder();
+        boolean inQuote = false;
+        int elements = 0;
+        for (int x = 0; x < pattern.length(); x++) {
+            char c = pattern.charAt(x);
+            if (c == '\'') {
+                if (x + 1 < pattern.length() && pattern.charAt(x + 1) == '\'') {
+                    literal.append('\'');
+                    x++;
+                } else {
+                    inQuote = !inQuote;
+                }
+            } else if (c == '{' && !inQuote) {
+                int end = elementEnd(pattern, x + 1);
+                int indexEnd = x + 1;
+                while (indexEnd < end && pattern.charAt(indexEnd) != ',') {
+                    indexEnd++;
+                }
+                argumentIndexes[elements++] = Integer.parseInt(pattern.substring(x + 1, indexEnd).trim());
+                literals.add(literal.toString());
+                literal.setLength(0);
+                x = end;
+            } else {
+                literal.append(c);
+            }
+        }
+        literals.add(literal.toString());
+        return new MessagePattern(pattern, locale, literals.toArray(new String[literals.size()]), argumentIndexes,
+                formats);
+    }
+
+    /**
+     * Returns the position of the brace that closes the format element starting at a position. Braces in
+     * quoted text and in nested patterns of choice formats don't close the element.
+     */
+    private static int elementEnd(String pattern, int start) {
+        int depth = 0;
+        boolean inQuote = false;
+        for (int x = start; x < pattern.length(); x++) {
+            char c = pattern.charAt(x);
+            if (c == '\'') {
+                inQuote = !inQuote;
+            } else if (!inQuote && c == '{') {
+                depth++;
+            } else if (!inQuote && c == '}') {
+                if (depth == 0) {
+                    return x;
+                }
+                depth--;
+            }
+        }
+        throw new IllegalArgumentException("Unmatched braces in the pattern.");
+    }
+
+    String getPattern() {
+        return pattern;
+    }
+
+    Locale getLocale() {
+        return locale;
+    }
+
+    /**
+     * Returns true if the pattern has no format elements, so that its output is always getLiteral().
+     */
+    boolean isLiteral() {
+        return formats.length == 0;
+    }
+
+    /**
+     * Returns the text of a pattern without format elements, with its quotes removed.
+     */
+    String getLiteral() {
+        return literals[0];
+    }
+
+    /**
+     * Appends the formatted message to a StringBuilder.
+     *
+     * @param arguments the arguments of the format elements, or null
+     * @return the target
+     * @throws IllegalArgumentException if an argument can't be formatted by the Format of its element
+     */
+    StringBuilder format(StringBuilder target, Object[] arguments) {
+        for (int x = 0; x < formats.length; x++) {
+            target.append(literals[x]);
+            int index = argumentIndexes[x];
+            if (arguments == null || index >= arguments.length) {
+                target.append('{').append(index).append('}');
+            } else {
+                appendArgument(target, formats[x], arguments[index], arguments);
+            }
+        }
+        return target.append(literals[formats.length]);
+    }
+
+    private void appendArgument(StringBuilder target, Format format, Object argument, Object[] arguments) {
+        if (argument == null) {
+            target.append("null");
+        } else if (format != null) {
+            String text = threadCopy(format).format(argument);
+            if (format instanceof ChoiceFormat && text.indexOf('{') >= 0) {
+                choicePattern(text).format(target, arguments);
+            } else {
+                target.append(text);
+            }
+        } else if (argument instanceof String) {
+            target.append((String) argument);
+        } else if (argument instanceof Number) {
+            target.append(threadCopy(numberFormat(locale)).format(argument));
+        } else if (argument instanceof Date) {
+            target.append(threadCopy(dateFormat(locale)).format(argument));
+        } else {
+            target.append(argument.toString());
+        }
+    }
+
+    /**
+     * Returns the shared prototype of the number format of arguments without a format type.
+     */
+    private static Format numberFormat(Locale locale) {
+        NumberFormat format = NUMBER_FORMATS.get(locale);
+        if (format == null) {
+            format = NumberFormat.getInstance(locale);
+            NumberFormat previous = NUMBER_FORMATS.putIfAbsent(locale, format);
+            if (previous != null) {
+                format = previous;
+            }
+        }
+        return format;
+    }
+
+    /**
+     * Returns the shared prototype of the date format of arguments without a format type.
+     */
+    private static Format dateFormat(Locale locale) {
+        DateFormat format = DATE_FORMATS.get(locale);
+        if (format == null) {
+            format = DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT, locale);
+            DateFormat previous = DATE_FORMATS.putIfAbsent(locale, format);
+            if (previous != null) {
+                format = previous;
+            }
+        }
+        return format;
+    }
+
+    /**
+     * Returns the compiled pattern of a choice format's result. A choice format only returns the texts of
+     * its choices, so the number of compiled patterns is bounded by the pattern.
+     */
+    MessagePattern choicePattern(String text) {
+        MessagePattern compiled = choicePatterns.get(text);
+        if (compiled == null) {
+            compiled = compile(text, locale);
+            MessagePattern previous = choicePatterns.putIfAbsent(text, compiled);
+            if (previous != null) {
+                compiled = previous;
+            }
+        }
+        return compiled;
+    }
+}
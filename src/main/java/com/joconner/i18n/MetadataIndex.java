@@ -0,0 +1,86 @@
+package com.joconner.i18n;
+
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonObject;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * MetadataIndex keeps the "@meta" objects of a JSON bundle as compact UTF-8 text in a single byte array,
+ * one byte range per key. Nothing at runtime needs metadata to resolve values, so no JSON tree is built
+ * for it until a caller asks for the metadata of a key. The parsed object is then kept for later calls.
+ *
+ * @author joconner
+ */
+final class MetadataIndex {
+
+    static final MetadataIndex EMPTY = new Builder().build();
+
+    private final byte[] data;
+    private final String[] keys;
+    private final int[] offsets;
+    private final AtomicReferenceArray<JsonObject> parsed;
+
+    private MetadataIndex(byte[] data, String[] keys, int[] offsets) {
+        this.data = data;
+        this.keys = keys;
+        this.offsets = offsets;
+        this.parsed = new AtomicReferenceArray<>(keys.length);
+    }
+
+    /**
+     * Returns the metadata of the key as an unmodifiable object, or null if the key has no metadata.
+     */
+    JsonObject get(String key) {
+        int index = Arrays.binarySearch(keys, key);
+        if (index < 0) {
+            return null;
+        }
+        JsonObject metadata = parsed.get(index);
+        if (metadata == null) {
+            String text = new String(data, offsets[index], offsets[index + 1] - offsets[index], StandardCharsets.UTF_8);
+            metadata = JsonObject.unmodifiableObject(Json.parse(text).asObject());
+            if (!parsed.compareAndSet(index, null, metadata)) {
+                metadata = parsed.get(index);
+            }
+        }
+        return metadata;
+    }
+
+    int size() {
+        return keys.length;
+    }
+
+    /**
+     * Collects the metadata text of each key while a bundle is parsed.
+     */
+    static final class Builder {
+        private final SortedMap<String, String> metadata = new TreeMap<>();
+
+        /**
+         * Records the metadata of a key as JSON text.
+         */
+        void add(String key, String jsonText) {
+            metadata.put(key, jsonText);
+        }
+
+        MetadataIndex build() {
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            String[] keys = new String[metadata.size()];
+            int[] offsets = new int[metadata.size() + 1];
+            int n = 0;
+            for (Map.Entry<String, String> entry : metadata.entrySet()) {
+                keys[n] = entry.getKey();
+                offsets[n] = data.size();
+                byte[] bytes = entry.getValue().getBytes(StandardCharsets.UTF_8);
+                data.write(bytes, 0, bytes.length);
+                n++;
+            }
+            offsets[n] = data.size();
+            return new MetadataIndex(data.toByteArray(), keys, offsets);
+        }
+    }
+}
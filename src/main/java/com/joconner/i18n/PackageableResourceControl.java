@@ -1,18 +1,48 @@
 package com.joconner.i18n;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
-import java.util.Locale;
-import java.util.ResourceBundle;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 
 /**
  * @author joconner
  */
 public class PackageableResourceControl extends ResourceBundle.Control {
 
+    /**
+     * The format name of bundles compiled by the BundleCompiler.
+     */
+    public static final String FORMAT_COMPILED = BundleCompiler.COMPILED_SUFFIX;
+
     boolean isPackageBased;
+    boolean useCompiledBundles;
+    volatile boolean hotReload;
+    volatile BundleMetrics metrics = BundleMetrics.NONE;
+    private ResourceWatcher watcher;
+    private final ResourceNameCache names = new ResourceNameCache();
+    private volatile BundleManifest manifest;
+    volatile StringPool stringPool;
+    volatile boolean flattenFallbacks;
+    private volatile BundleCache bundleCache;
+    private volatile Executor reloadExecutor;
+    private volatile ResourceSource resourceSource;
+    private final Map<ResourceBundle, Object> readStamps =
+            Collections.synchronizedMap(new WeakHashMap<ResourceBundle, Object>());
+    private final BundleReloader reloader = new BundleReloader();
+    private final ConcurrentMap<String, List<String>> manifestFormats = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConcurrentMap<Locale, List<Locale>>> manifestCandidates =
+            new ConcurrentHashMap<>();
 
     public PackageableResourceControl() {
         this(true);
@@ -32,9 +62,20 @@ public class PackageableResourceControl extends ResourceBundle.Control {
      * If this is not a package-based control, converts a baseName resource
      * file to standard bundle names as provided by the default Java
      * ResourceBundle.Control class.
+     * <p>
+     * Bundle names are computed once for each base name and locale and are cached by the control.
      */
     @Override
     public String toBundleName(String baseName, Locale locale) {
+        String bundleName = names.getBundleName(baseName, locale);
+        if (bundleName == null) {
+            bundleName = computeBundleName(baseName, locale);
+            names.putBundleName(baseName, locale, bundleName);
+        }
+        return bundleName;
+    }
+
+    private String computeBundleName(String baseName, Locale locale) {
         String bundleName = null;
         if (isPackageBased) {
             int nBasePackage = baseName.lastIndexOf(".");
@@ -56,4 +97,742 @@ public class PackageableResourceControl extends ResourceBundle.Control {
         return bundleName;
     }
 
+    /**
+     * Returns the resource name of a bundle, like toResourceName, but caches the name.
+     */
+    String resourceName(String bundleName, String suffix) {
+        String resourceName = names.getResourceName(bundleName, suffix);
+        if (resourceName == null) {
+            resourceName = toResourceName(bundleName, suffix);
+            names.putResourceName(bundleName, suffix, resourceName);
+        }
+        return resourceName;
+    }
+
+    /**
+     * Forgets the cached bundle and resource names, and the resources that were found to be missing.
+     * Call this after adding bundle files to a class loader's resources while the application runs.
+     * Controls in hot reload mode don't cache missing resources.
+     */
+    public void clearNameCache() {
+        names.clear();
+    }
+
+    /**
+     * Returns the manifest of this control, or null if the control doesn't use a manifest.
+     */
+    public BundleManifest getBundleManifest() {
+        return manifest;
+    }
+
+    /**
+     * Sets the manifest of the bundles that exist, typically BundleManifest.load(classLoader) with the
+     * class loader that loads the bundles. For every base name in the manifest, getCandidateLocales
+     * and getFormats return only the locales and formats of listed bundles, and newBundle doesn't look
+     * for bundles that aren't listed. Pass null to look up every bundle in the class loader.
+     */
+    public void setBundleManifest(BundleManifest manifest) {
+        this.manifest = manifest;
+        manifestFormats.clear();
+        manifestCandidates.clear();
+    }
+
+    /**
+     * Returns the default candidate locales, except that for a base name in the manifest only the
+     * locales that have a listed bundle are returned.
+     */
+    @Override
+    public List<Locale> getCandidateLocales(String baseName, Locale locale) {
+        BundleManifest currentManifest = manifest;
+        if (currentManifest == null || !currentManifest.covers(baseName)) {
+            return super.getCandidateLocales(baseName, locale);
+        }
+        ConcurrentMap<Locale, List<Locale>> byLocale = manifestCandidates.get(baseName);
+        List<Locale> candidates = byLocale == null ? null : byLocale.get(locale);
+        if (candidates == null) {
+            candidates = new ArrayList<>();
+            List<String> formats = getFormats(baseName);
+            for (Locale candidate : super.getCandidateLocales(baseName, locale)) {
+                for (String format : formats) {
+                    String suffix = suffixFor(format);
+                    if (suffix != null &&
+                            currentManifest.contains(bundleResourceName(baseName, candidate, suffix))) {
+                        candidates.add(candidate);
+                        break;
+                    }
+                }
+            }
+            if (candidates.isEmpty()) {
+                // ResourceBundle.getBundle needs at least one candidate; newBundle won't look for it.
+                candidates.add(Locale.ROOT);
+            }
+            candidates = Collections.unmodifiableList(candidates);
+            if (byLocale == null) {
+                manifestCandidates.putIfAbsent(baseName, new ConcurrentHashMap<Locale, List<Locale>>());
+                byLocale = manifestCandidates.get(baseName);
+            }
+            byLocale.put(locale, candidates);
+        }
+        return candidates;
+    }
+
+    /**
+     * Restricts a control's formats to the formats of the bundles that the manifest lists for the
+     * base name. Formats of base names that the manifest doesn't cover aren't restricted.
+     */
+    List<String> filterFormats(String baseName, List<String> formats) {
+        BundleManifest currentManifest = manifest;
+        if (currentManifest == null || !currentManifest.covers(baseName)) {
+            return formats;
+        }
+        List<String> filtered = manifestFormats.get(baseName);
+        if (filtered == null) {
+            Set<String> suffixes = currentManifest.suffixes(baseName);
+            filtered = new ArrayList<>();
+            for (String format : formats) {
+                String suffix = suffixFor(format);
+                if (suffix != null && suffixes.contains(suffix)) {
+                    filtered.add(format);
+                }
+            }
+            filtered = Collections.unmodifiableList(filtered);
+            manifestFormats.putIfAbsent(baseName, filtered);
+        }
+        return filtered;
+    }
+
+    /**
+     * Returns true if the manifest covers the base name but doesn't list the bundle of the locale and
+     * format, so that newBundle can return null without asking the class loader.
+     */
+    boolean isUnlisted(String baseName, Locale locale, String format) {
+        BundleManifest currentManifest = manifest;
+        if (currentManifest == null || !currentManifest.covers(baseName)) {
+            return false;
+        }
+        String suffix = suffixFor(format);
+        return suffix == null || !currentManifest.contains(bundleResourceName(baseName, locale, suffix));
+    }
+
+    /**
+     * Returns the name of the resource that holds the bundle of a base name and locale in the format of
+     * a suffix.
+     */
+    String bundleResourceName(String baseName, Locale locale, String suffix) {
+        return resourceName(toBundleName(baseName, locale), suffix);
+    }
+
+    /**
+     * Returns the pool that deduplicates the strings of loaded bundles, or null.
+     */
+    public StringPool getStringPool() {
+        return stringPool;
+    }
+
+    /**
+     * Sets a pool that deduplicates the keys and values of the JSON and UTF-8 properties bundles that
+     * this control loads. Share one pool between all controls of an application to deduplicate across
+     * all of their bundles. Pass null to turn deduplication off.
+     */
+    public void setStringPool(StringPool stringPool) {
+        this.stringPool = stringPool;
+    }
+
+    /**
+     * Returns true if the bundles that this control loads flatten their fallback chains.
+     */
+    public boolean isFlattenFallbacks() {
+        return flattenFallbacks;
+    }
+
+    /**
+     * If flattenFallbacks is true, the JSON, UTF-8 properties, and compiled bundles that this control loads
+     * resolve every key of their parent chain into a single table on the first lookup. A key that a
+     * partially translated locale such as fr-CA doesn't contain is then found with one probe instead of
+     * a lookup in fr-CA, fr, and the root bundle. Each flattened bundle keeps its own merged table, which
+     * costs memory in exchange for lookup speed. Bundles that are already loaded aren't affected.
+     */
+    public void setFlattenFallbacks(boolean flattenFallbacks) {
+        this.flattenFallbacks = flattenFallbacks;
+    }
+
+    /**
+     * Returns the cache that keeps the bundles of this control, or null.
+     */
+    public BundleCache getBundleCache() {
+        return bundleCache;
+    }
+
+    /**
+     * Sets a size-bounded cache that keeps the bundles this control loads instead of the cache of
+     * ResourceBundle.getBundle. With a cache, getTimeToLive returns TTL_DONT_CACHE, and newBundle returns
+     * cached bundles without loading them. One cache can be shared by several controls. Pass null to
+     * go back to the cache of ResourceBundle.getBundle; bundles that the JDK didn't cache are loaded again.
+     */
+    public void setBundleCache(BundleCache bundleCache) {
+        this.bundleCache = bundleCache;
+    }
+
+    /**
+     * Returns the executor that reloads changed bundles in the background, or null if changed bundles are
+     * reloaded by the calling thread.
+     */
+    public Executor getReloadExecutor() {
+        return reloadExecutor;
+    }
+
+    /**
+     * Sets an executor that reloads changed bundles in hot reload mode. Without an executor, every thread
+     * that asks for a changed bundle before the new bundle is cached may read and parse the bundle itself.
+     * With an executor, a changed bundle is rebuilt once, on the executor, while callers keep getting
+     * the previous bundle; the first call after the rebuild finished swaps in the new bundle. If the file
+     * changes again during the rebuild, the rebuild starts over. Pass null to reload synchronously.
+     */
+    public void setReloadExecutor(Executor reloadExecutor) {
+        this.reloadExecutor = reloadExecutor;
+        if (reloadExecutor == null) {
+            reloader.clear();
+        }
+    }
+
+    /**
+     * Returns the source of this control's bundle files, or null if the files are resources of the class
+     * loader.
+     */
+    public ResourceSource getResourceSource() {
+        return resourceSource;
+    }
+
+    /**
+     * Sets the source that the control reads its JSON, properties, and compiled bundle files from, such as a
+     * DirectoryResourceSource or a ZipResourceSource. Class-based bundles are still loaded by the class
+     * loader. In hot reload mode, the control compares the version of each file with the version it read
+     * instead of watching directories. Pass null to read the files as resources of the class loader.
+     * Bundles that are already loaded aren't affected.
+     */
+    public void setResourceSource(ResourceSource resourceSource) {
+        this.resourceSource = resourceSource;
+        names.clear();
+    }
+
+    /**
+     * Returns true if this control looks for compiled bundles before text bundles.
+     */
+    public boolean isUseCompiledBundles() {
+        return useCompiledBundles;
+    }
+
+    /**
+     * If useCompiledBundles is true, the control adds the FORMAT_COMPILED format to the front of its
+     * formats, and bundles compiled by the BundleCompiler are loaded in preference to .json and
+     * .properties files of the same name.
+     */
+    public void setUseCompiledBundles(boolean useCompiledBundles) {
+        this.useCompiledBundles = useCompiledBundles;
+    }
+
+    /**
+     * Returns the metrics hook of this control.
+     */
+    public BundleMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the hook that receives the load, reload, cache, and missing-key events of this control and of
+     * the bundles that it creates. Pass null to stop recording events.
+     */
+    public void setMetrics(BundleMetrics metrics) {
+        this.metrics = metrics == null ? BundleMetrics.NONE : metrics;
+    }
+
+    /**
+     * Returns true if this control reloads bundles whose files change on the file system.
+     */
+    public boolean isHotReload() {
+        return hotReload;
+    }
+
+    /**
+     * Turns hot reloading on or off. In hot reload mode, the control watches the directories of
+     * bundles that it loads from the file system with a WatchService. ResourceBundle.getBundle then
+     * reloads a cached bundle only when its own file has changed; unchanged files are never read again.
+     * Bundles loaded from jar files are never reloaded.
+     * <p>
+     * Hot reloading is meant for development and staging systems where translations are edited in
+     * exploded resource directories.
+     */
+    public synchronized void setHotReload(boolean hotReload) throws IOException {
+        this.hotReload = hotReload;
+        if (!hotReload && watcher != null) {
+            watcher.close();
+            watcher = null;
+        }
+    }
+
+    /**
+     * Returns TTL_DONT_CACHE if the control has a BundleCache. In hot reload mode, returns 0 so that
+     * ResourceBundle.getBundle asks needsReload whether a cached bundle has changed. Otherwise returns
+     * the default time-to-live.
+     */
+    @Override
+    public long getTimeToLive(String baseName, Locale locale) {
+        if (bundleCache != null) {
+            return TTL_DONT_CACHE;
+        }
+        return hotReload ? 0 : super.getTimeToLive(baseName, locale);
+    }
+
+    /**
+     * In hot reload mode, returns true if the watched file of the bundle changed after the bundle started
+     * reading it. The check doesn't access the file system, and doesn't depend on loadTime, which
+     * ResourceBundle.getBundle sets only after the bundle was read. Otherwise uses the default
+     * implementation.
+     */
+    @Override
+    public boolean needsReload(String baseName, Locale locale, String format, ClassLoader loader,
+                               ResourceBundle bundle, long loadTime) {
+        if (!hotReload) {
+            return super.needsReload(baseName, locale, format, loader, bundle, loadTime);
+        }
+        boolean changed = isStale(baseName, locale, format, loader, bundle);
+        if (!changed) {
+            metrics.cacheHit(format, locale);
+        }
+        return changed;
+    }
+
+    /**
+     * Returns true if a bundle should be replaced now. Without a reload executor, that's when its file
+     * changed after the bundle started reading it. With a reload executor, that's when the bundle's reload
+     * is ready and the caller claimed it. Both decisions compare the stamp that the bundle was read with,
+     * so a bundle stays stale until a bundle that was read after the last change replaces it, no matter
+     * when ResourceBundle.getBundle sets its load time.
+     */
+    private boolean isStale(String baseName, Locale locale, String format, ClassLoader loader,
+                            ResourceBundle bundle) {
+        if (!changedSince(baseName, locale, format, loader, readStamp(bundle))) {
+            return false;
+        }
+        return reloadExecutor == null || revalidate(baseName, locale, format, loader);
+    }
+
+    /**
+     * Makes sure that a changed bundle is being reloaded on the reload executor, and returns true if the
+     * reloaded bundle is ready and the caller is the one that swaps it in. A reloaded bundle that is stale
+     * itself, because the file changed again after the reload started reading it, is discarded and the
+     * reload starts over. The claimed bundle is returned by the next call of newBundle for the bundle.
+     */
+    private boolean revalidate(String baseName, Locale locale, String format, ClassLoader loader) {
+        BundleReloader.Reload pending = startReload(baseName, locale, format, loader);
+        if (pending.isDone() && pending.getBundle() != null &&
+                changedSince(baseName, locale, format, loader, readStamp(pending.getBundle()))) {
+            // The file changed again while the bundle was rebuilt.
+            reloader.discard(pending);
+            pending = startReload(baseName, locale, format, loader);
+        }
+        return pending.claim();
+    }
+
+    private BundleReloader.Reload startReload(final String baseName, final Locale locale, final String format,
+                                              final ClassLoader loader) {
+        // The load gets the class loader from the reload, which refers to it weakly.
+        return reloader.reload(baseName, locale, format, loader, reloadExecutor, new BundleReloader.Load() {
+            @Override
+            public ResourceBundle load(ClassLoader classLoader) throws Exception {
+                return loadStampedBundle(baseName, locale, format, classLoader, true);
+            }
+        });
+    }
+
+    private boolean changedSince(String baseName, Locale locale, String format, ClassLoader loader,
+                                 Object stamp) {
+        String suffix = suffixFor(format);
+        return suffix != null && changedSince(bundleResourceName(baseName, locale, suffix), loader, stamp);
+    }
+
+    /**
+     * In hot reload mode, returns true if a resource changed after the given stamp was taken. Returns false
+     * if the stamp is null, which is the stamp of a resource that was read outside hot reload mode.
+     *
+     * @param stamp a stamp that readStamp returned for the resource
+     */
+    boolean changedSince(String resourceName, ClassLoader loader, Object stamp) {
+        if (stamp == null) {
+            return false;
+        }
+        ResourceSource source = resourceSource;
+        if (source != null) {
+            try {
+                return !stamp.equals(source.version(resourceName, loader));
+            } catch (IOException e) {
+                return true;
+            }
+        }
+        ResourceWatcher currentWatcher = watcher;
+        return currentWatcher != null && !stamp.equals(currentWatcher.changeCount(resourceName));
+    }
+
+    /**
+     * In hot reload mode, returns a stamp of the current state of a resource: the resource's version if
+     * the control has a resource source, and otherwise the number of changes of the watched file. A stamp
+     * that is taken before the resource is read tells whether the bundle that was read is stale, even if
+     * the resource changes during the read. Returns null outside hot reload mode, or if the version of
+     * the resource can't be read.
+     */
+    Object readStamp(String resourceName, ClassLoader loader) {
+        if (!hotReload) {
+            return null;
+        }
+        ResourceSource source = resourceSource;
+        if (source != null) {
+            try {
+                return source.version(resourceName, loader);
+            } catch (IOException e) {
+                return null;
+            }
+        }
+        ResourceWatcher currentWatcher = watcher;
+        return currentWatcher == null ? 0L : currentWatcher.changeCount(resourceName);
+    }
+
+    /**
+     * Returns the stamp of the resource of a bundle from before the bundle was read, or null.
+     */
+    Object readStamp(ResourceBundle bundle) {
+        if (bundle instanceof IndexedResourceBundle) {
+            return ((IndexedResourceBundle) bundle).readStamp;
+        }
+        return bundle == null ? null : readStamps.get(bundle);
+    }
+
+    /**
+     * Records the stamp of the resource of a bundle from before the bundle was read.
+     */
+    void setReadStamp(ResourceBundle bundle, Object stamp) {
+        if (bundle instanceof IndexedResourceBundle) {
+            ((IndexedResourceBundle) bundle).readStamp = stamp;
+        } else if (stamp != null) {
+            readStamps.put(bundle, stamp);
+        }
+    }
+
+    /**
+     * Returns a bundle from the control's BundleCache or a bundle that was reloaded in the background,
+     * if there is one. Otherwise loads the bundle with loadBundle and adds it to the BundleCache.
+     */
+    @Override
+    public ResourceBundle newBundle(String baseName, Locale locale, String format, ClassLoader loader,
+                                    boolean reload)
+            throws IllegalAccessException, InstantiationException, IOException {
+        ResourceBundle bundle = null;
+        try {
+            bundle = cachedBundle(baseName, locale, loader);
+            if (bundle != null) {
+                return bundle;
+            }
+            BundleReloader.Reload reloaded = reloader.take(baseName, locale, format, loader);
+            if (reloaded != null && reloaded.getBundle() != null) {
+                bundle = cacheBundle(baseName, locale, format, loader, reloaded.getLoadTime(),
+                        reloaded.getBundle());
+                return bundle;
+            }
+            long loadTime = System.currentTimeMillis();
+            bundle = cacheBundle(baseName, locale, format, loader, loadTime,
+                    loadStampedBundle(baseName, locale, format, loader, reload));
+            return bundle;
+        } finally {
+            if (!reloader.isEmpty()) {
+                discardUnusedClaims(baseName, locale, format, loader, bundle != null);
+            }
+        }
+    }
+
+    /**
+     * Forgets the claimed reloads of a bundle that ResourceBundle.getBundle won't take, because it stops
+     * at this format: the format has a bundle, or it's the last format of the base name.
+     */
+    private void discardUnusedClaims(String baseName, Locale locale, String format, ClassLoader loader,
+                                     boolean found) {
+        List<String> formats = getFormats(baseName);
+        if (found || formats.indexOf(format) == formats.size() - 1) {
+            reloader.discardOtherClaims(baseName, locale, format, loader, formats);
+        }
+    }
+
+    /**
+     * Loads a bundle with loadBundle. In hot reload mode, the bundle gets the stamp of its resource from
+     * before the load, unless loadBundle gave it a stamp of its own.
+     */
+    private ResourceBundle loadStampedBundle(String baseName, Locale locale, String format, ClassLoader loader,
+                                             boolean reload)
+            throws IllegalAccessException, InstantiationException, IOException {
+        String suffix = suffixFor(format);
+        Object stamp = suffix == null ? null : readStamp(bundleResourceName(baseName, locale, suffix), loader);
+        ResourceBundle bundle = loadBundle(baseName, locale, format, loader, reload);
+        if (bundle != null && stamp != null && readStamp(bundle) == null) {
+            setReadStamp(bundle, stamp);
+        }
+        return bundle;
+    }
+
+    /**
+     * Loads a bundle. Subclasses load the formats they support here; this implementation loads the
+     * formats of the default implementation of newBundle.
+     */
+    ResourceBundle loadBundle(String baseName, Locale locale, String format, ClassLoader loader, boolean reload)
+            throws IllegalAccessException, InstantiationException, IOException {
+        long start = System.nanoTime();
+        ResourceBundle bundle = null;
+        if (!isUnlisted(baseName, locale, format)) {
+            watchBundle(toBundleName(baseName, locale), format, loader);
+            bundle = newDefaultBundle(baseName, locale, format, loader, reload);
+        }
+        return recordLoad(bundle, format, locale, reload, start, -1);
+    }
+
+    /**
+     * Returns the bundle from the control's BundleCache, or null if the control has no cache or the cache
+     * doesn't have the bundle. In hot reload mode, a bundle whose file changed is removed from the cache,
+     * or, with a reload executor, once its reloaded bundle is ready.
+     */
+    ResourceBundle cachedBundle(String baseName, Locale locale, ClassLoader loader) {
+        BundleCache cache = bundleCache;
+        BundleCache.Entry entry = cache == null ? null : cache.get(this, baseName, locale, loader);
+        if (entry == null) {
+            return null;
+        }
+        if (hotReload && isStale(baseName, locale, entry.format, loader, entry.bundle)) {
+            cache.invalidate(entry);
+            return null;
+        }
+        cache.served(entry);
+        metrics.cacheHit(entry.format, locale);
+        return entry.bundle;
+    }
+
+    /**
+     * Adds a loaded bundle to the control's BundleCache, if the control has one.
+     *
+     * @param loadTime the System.currentTimeMillis at the start of newBundle
+     * @return the bundle to return from newBundle, which is the bundle that another thread cached first
+     *     if there is one
+     */
+    ResourceBundle cacheBundle(String baseName, Locale locale, String format, ClassLoader loader, long loadTime,
+                               ResourceBundle bundle) {
+        BundleCache cache = bundleCache;
+        if (cache == null || bundle == null) {
+            return bundle;
+        }
+        return cache.put(this, baseName, locale, loader, format, loadTime, bundle);
+    }
+
+    /**
+     * Returns the file suffix of a resource-based format, or null if the format isn't resource-based.
+     */
+    static String suffixFor(String format) {
+        if (format.equals("java.properties")) {
+            return "properties";
+        } else if (format.equals("json") || format.equals(FORMAT_COMPILED) ||
+                format.equals(JsonResourceBundleControl.FORMAT_JSON_LOCALES)) {
+            return format;
+        }
+        return null;
+    }
+
+    /**
+     * Opens a bundle resource from the resource source, or from the class loader if the control has no
+     * source, bypassing URL caches if the bundle is being reloaded. Returns null without asking the
+     * source or class loader if the resource is known to be missing.
+     */
+    InputStream openResource(String resourceName, ClassLoader loader, boolean reload) throws IOException {
+        if (!reload && isKnownMissing(resourceName, loader)) {
+            return null;
+        }
+        ResourceSource source = resourceSource;
+        InputStream stream;
+        if (source != null) {
+            stream = source.open(resourceName, loader);
+        } else {
+            if (hotReload) {
+                // Watch the file before reading it, so that a change during the read is seen.
+                watch(resourceName, loader.getResource(resourceName));
+            }
+            stream = reload ? reload(resourceName, loader) : loader.getResourceAsStream(resourceName);
+        }
+        if (stream == null) {
+            markMissing(resourceName, loader);
+        }
+        if (stream != null && metrics != BundleMetrics.NONE) {
+            stream = new CountingInputStream(stream);
+        }
+        return stream;
+    }
+
+    /**
+     * Returns true if an earlier probe found that the class loader doesn't have the resource.
+     * Missing resources aren't cached in hot reload mode, because files may be added at any time.
+     */
+    boolean isKnownMissing(String resourceName, ClassLoader loader) {
+        return !hotReload && names.isMissing(loader, resourceName);
+    }
+
+    void markMissing(String resourceName, ClassLoader loader) {
+        if (!hotReload) {
+            names.markMissing(loader, resourceName);
+        }
+    }
+
+    /**
+     * Loads a bundle in one of the JDK's default formats, "java.class" or "java.properties", with the
+     * default implementation of newBundle. Bundles that the default implementation doesn't find are
+     * remembered, so it isn't asked again for them.
+     */
+    ResourceBundle newDefaultBundle(String baseName, Locale locale, String format, ClassLoader loader,
+                                    boolean reload)
+            throws IllegalAccessException, InstantiationException, IOException {
+        String bundleName = toBundleName(baseName, locale);
+        String key = resourceName(bundleName, format.equals("java.class") ? "class" : "properties");
+        if (!reload && isKnownMissing(key, loader)) {
+            return null;
+        }
+        if (resourceSource != null && format.equals("java.properties")) {
+            InputStream stream = openResource(key, loader, reload);
+            if (stream == null) {
+                return null;
+            }
+            try {
+                return new PropertyResourceBundle(stream);
+            } finally {
+                stream.close();
+            }
+        }
+        ResourceBundle bundle = super.newBundle(baseName, locale, format, loader, reload);
+        if (bundle == null) {
+            markMissing(key, loader);
+        }
+        return bundle;
+    }
+
+    /**
+     * Reports a call of newBundle to the metrics hook, connects a created bundle to the hook, and applies
+     * the flattenFallbacks setting to the bundle.
+     *
+     * @param bundle the bundle that newBundle created, or null
+     * @param startNanos the System.nanoTime at the start of newBundle
+     * @param bytes the number of bytes read, or -1 if unknown
+     * @return the bundle
+     */
+    ResourceBundle recordLoad(ResourceBundle bundle, String format, Locale locale, boolean reload,
+                              long startNanos, long bytes) {
+        if (bundle instanceof IndexedResourceBundle) {
+            ((IndexedResourceBundle) bundle).flattenParents = flattenFallbacks;
+        }
+        BundleMetrics currentMetrics = metrics;
+        if (currentMetrics == BundleMetrics.NONE) {
+            return bundle;
+        }
+        if (bundle != null) {
+            // A format that has no bundle for the locale isn't a miss of its own.
+            currentMetrics.cacheMiss(format, locale);
+            currentMetrics.bundleLoaded(format, locale, System.nanoTime() - startNanos, bytes);
+            if (reload) {
+                currentMetrics.bundleReloaded(format, locale);
+            }
+            if (bundle instanceof IndexedResourceBundle) {
+                ((IndexedResourceBundle) bundle).metrics = currentMetrics;
+            }
+        }
+        return bundle;
+    }
+
+    /**
+     * In hot reload mode, starts watching the file of a bundle before it is loaded. Files of a resource
+     * source aren't watched; their versions are compared instead.
+     */
+    void watchBundle(String bundleName, String format, ClassLoader loader) throws IOException {
+        String suffix = suffixFor(format);
+        if (hotReload && suffix != null && resourceSource == null) {
+            String resourceName = resourceName(bundleName, suffix);
+            watch(resourceName, loader.getResource(resourceName));
+        }
+    }
+
+    private synchronized void watch(String resourceName, URL url) throws IOException {
+        if (!hotReload) {
+            return;
+        }
+        if (watcher == null) {
+            watcher = new ResourceWatcher();
+        }
+        watcher.watch(resourceName, url);
+    }
+
+    /**
+     * Loads a compiled bundle. Bundles on the file system are memory-mapped read-only, so their
+     * values are decoded lazily directly from the mapped file. Bundles in other locations, such
+     * as jar files, are read into a heap buffer. Bundles of a resource source are read with the
+     * source's map method.
+     */
+    ResourceBundle newCompiledBundle(String bundleName, ClassLoader loader, boolean reload) throws IOException {
+        String resourceName = resourceName(bundleName, FORMAT_COMPILED);
+        if (!reload && isKnownMissing(resourceName, loader)) {
+            return null;
+        }
+        ResourceSource source = resourceSource;
+        if (source != null) {
+            ByteBuffer buffer = source.map(resourceName, loader);
+            if (buffer == null) {
+                markMissing(resourceName, loader);
+                return null;
+            }
+            return new CompiledResourceBundle(buffer);
+        }
+        URL url = loader.getResource(resourceName);
+        if (url == null) {
+            markMissing(resourceName, loader);
+            return null;
+        }
+        if (hotReload) {
+            watch(resourceName, url);
+        }
+        ByteBuffer buffer;
+        if ("file".equals(url.getProtocol())) {
+            try (FileChannel channel = FileChannel.open(Paths.get(url.toURI()), StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } catch (URISyntaxException e) {
+                throw new IOException("Invalid resource location: " + url, e);
+            }
+        } else {
+            try (InputStream is = reload ? reload(resourceName, loader) : url.openStream()) {
+                if (is == null) {
+                    return null;
+                }
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                byte[] chunk = new byte[8192];
+                int n;
+                while ((n = is.read(chunk)) != -1) {
+                    bytes.write(chunk, 0, n);
+                }
+                buffer = ByteBuffer.wrap(bytes.toByteArray());
+            }
+        }
+        return new CompiledResourceBundle(buffer);
+    }
+
+    InputStream reload(String resourceName, ClassLoader classLoader) throws IOException {
+        InputStream stream = null;
+        URL url = classLoader.getResource(resourceName);
+        if (url != null) {
+            URLConnection connection = url.openConnection();
+            if (connection != null) {
+                // Disable caches to get fresh data for
+                // reloading.
+                connection.setUseCaches(false);
+                stream = connection.getInputStream();
+            }
+        }
+        return stream;
+    }
+
 }
@@ -0,0 +1,108 @@
+package com.joconner.i18n;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * PathResourceSource reads resources below the root directory of a java.nio.file.FileSystem. Files on the
+ * default file system are memory-mapped by map; files on other file systems, such as the entries of a zip
+ * file, are read into a heap buffer. Resource names that would leave the root directory are treated as
+ * missing resources.
+ *
+ * @author joconner
+ */
+abstract class PathResourceSource implements ResourceSource {
+
+    /**
+     * Returns the directory that resource names are resolved against, or null if the source currently has
+     * no resources.
+     */
+    abstract Path root() throws IOException;
+
+    @Override
+    public InputStream open(String resourceName, ClassLoader loader) throws IOException {
+        return openFile(resolve(resourceName));
+    }
+
+    @Override
+    public ByteBuffer map(String resourceName, ClassLoader loader) throws IOException {
+        return mapFile(resolve(resourceName));
+    }
+
+    /**
+     * Opens a file, or returns null if the file is null or doesn't exist.
+     */
+    static InputStream openFile(Path file) throws IOException {
+        if (file == null) {
+            return null;
+        }
+        try {
+            return Files.newInputStream(file);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Maps or reads a file, or returns null if the file is null or isn't a regular file.
+     */
+    static ByteBuffer mapFile(Path file) throws IOException {
+        if (file == null || !Files.isRegularFile(file)) {
+            return null;
+        }
+        if (file.getFileSystem() != FileSystems.getDefault()) {
+            return ByteBuffer.wrap(Files.readAllBytes(file));
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    @Override
+    public Version version(String resourceName, ClassLoader loader) throws IOException {
+        Path file = resolve(resourceName);
+        if (file == null) {
+            return null;
+        }
+        return versionOf(file);
+    }
+
+    /**
+     * Returns the version of a file from its attributes, or null if the file doesn't exist.
+     */
+    static Version versionOf(Path file) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (!attributes.isRegularFile()) {
+            return null;
+        }
+        return new Version(attributes.lastModifiedTime().toMillis(), attributes.size());
+    }
+
+    /**
+     * Returns the file of a resource, or null if the resource name leaves the root directory.
+     */
+    Path resolve(String resourceName) throws IOException {
+        return resolve(root(), resourceName);
+    }
+
+    /**
+     * Returns the file of a resource below a root directory, or null if the root is null or the resource
+     * name leaves the root directory.
+     */
+    static Path resolve(Path root, String resourceName) {
+        if (root == null) {
+            return null;
+        }
+        Path file = root.resolve(resourceName).normalize();
+        return file.startsWith(root) ? file : null;
+    }
+}
@@ -0,0 +1,162 @@
+package com.joconner.i18n;
+
+import java.util.*;
+
+/**
+ * PrefixIndex keeps the keys and values of a bundle and its parent chain in arrays sorted by key, so that
+ * the keys that start with a prefix are a contiguous range. Finding the range takes a binary search, and
+ * reading it takes time proportional to the number of keys in it. The index is immutable.
+ *
+ * @author joconner
+ */
+final class PrefixIndex {
+
+    static final PrefixIndex EMPTY = new PrefixIndex(null, null, new String[0], new String[0]);
+
+    /**
+     * The parent bundle and the parent's index that this index was built on.
+     */
+    final ResourceBundle parent;
+    final PrefixIndex parentIndex;
+    private final String[] keys;
+    private final String[] values;
+
+    private PrefixIndex(ResourceBundle parent, PrefixIndex parentIndex, String[] keys, String[] values) {
+        this.parent = parent;
+        this.parentIndex = parentIndex;
+        this.keys = keys;
+        this.values = values;
+    }
+
+    /**
+     * Builds the index of a bundle's own keys and values on top of the index of its parent chain. Where
+     * both have a key, the bundle's own value wins.
+     *
+     * @param ownKeys the bundle's own keys, sorted in natural String order
+     * @param ownValues the values of ownKeys, in the same order
+     * @param parent the bundle's parent, or null
+     * @param parentIndex the index of the parent chain, or null
+     */
+    static PrefixIndex build(String[] ownKeys, String[] ownValues, ResourceBundle parent, PrefixIndex parentIndex) {
+        PrefixIndex inherited = parentIndex == null ? EMPTY : parentIndex;
+        String[] keys = new String[ownKeys.length + inherited.keys.length];
+        String[] values = new String[keys.length];
+        int size = 0;
+        int own = 0;
+        int next = 0;
+        while (own < ownKeys.length || next < inherited.keys.length) {
+            int comparison;
+            if (own == ownKeys.length) {
+                comparison = 1;
+            } else if (next == inherited.keys.length) {
+                comparison = -1;
+            } else {
+                comparison = ownKeys[own].compareTo(inherited.keys[next]);
+            }
+            if (comparison <= 0) {
+                keys[size] = ownKeys[own];
+                values[size++] = ownValues[own++];
+                if (comparison == 0) {
+                    next++;
+                }
+            } else {
+                keys[size] = inherited.keys[next];
+                values[size++] = inherited.values[next++];
+            }
+        }
+        if (size < keys.length) {
+            keys = Arrays.copyOf(keys, size);
+            values = Arrays.copyOf(values, size);
+        }
+        return new PrefixIndex(parent, parentIndex, keys, values);
+    }
+
+    /**
+     * Returns the number of keys in the index.
+     */
+    int size() {
+        return keys.length;
+    }
+
+    /**
+     * Returns an unmodifiable view of the keys that start with a prefix and their values, in key order.
+     */
+    Map<String, String> withPrefix(String prefix) {
+        int from = Arrays.binarySearch(keys, prefix);
+        if (from < 0) {
+            from = -from - 1;
+        }
+        int to = from;
+        while (to < keys.length && keys[to].startsWith(prefix)) {
+            to++;
+        }
+        return new Range(from, to);
+    }
+
+    private final class Range extends AbstractMap<String, String> {
+        private final int from;
+        private final int to;
+
+        Range(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public String get(Object key) {
+            int index = indexOf(key);
+            return index < 0 ? null : values[index];
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return indexOf(key) >= 0;
+        }
+
+        private int indexOf(Object key) {
+            return key instanceof String ? Arrays.binarySearch(keys, from, to, key) : -1;
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return new AbstractSet<Entry<String, String>>() {
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    return new Iterator<Entry<String, String>>() {
+                        private int index = from;
+
+                        @Override
+                        public boolean hasNext() {
+                            return index < to;
+                        }
+
+                        @Override
+                        public Entry<String, String> next() {
+                            if (index >= to) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<String, String> entry = new SimpleImmutableEntry<>(keys[index], values[index]);
+                            index++;
+                            return entry;
+                        }
+
+                        @Override
+                        public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return to - from;
+                }
+            };
+        }
+    }
+}
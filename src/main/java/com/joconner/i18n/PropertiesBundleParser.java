@@ -0,0 +1,312 @@
+package com.joconner.i18n;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+/**
+ * PropertiesBundleParser reads a properties file in a single pass and puts its key-value pairs straight into a
+ * StringTable.Builder. It follows the syntax of java.util.Properties.load: comment lines start with # or !,
+ * keys end at the first unescaped =, : or whitespace, a line that ends with an odd number of backslashes
+ * continues on the next line without its leading whitespace, and \t, \n, \r, \f and backslash-u escapes
+ * are decoded. When the last key appears more than once, the last value wins.
+ * <p>
+ * When the parser reads an InputStream, it decodes UTF-8 from the bytes itself instead of going through a
+ * Reader, and malformed byte sequences become U+FFFD as they would with an InputStreamReader. A leading
+ * byte order mark is skipped.
+ *
+ * @author joconner
+ */
+final class PropertiesBundleParser {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int EOF = -1;
+    private static final int EOL = -2;
+    private static final int ESCAPED = 0x10000;
+    private static final int REPLACEMENT = 0xFFFD;
+    private static final int BYTE_ORDER_MARK = 0xFEFF;
+
+    private final InputStream in;
+    private final Reader reader;
+    private final byte[] bytes;
+    private final char[] chars;
+    private final StringBuilder text = new StringBuilder();
+    private final int[] pushback = new int[2];
+    private int pushed;
+    private int position;
+    private int limit;
+
+    PropertiesBundleParser(InputStream in) {
+        this.in = in;
+        this.reader = null;
+        this.bytes = new byte[BUFFER_SIZE];
+        this.chars = null;
+    }
+
+    PropertiesBundleParser(Reader reader) {
+        this.in = null;
+        this.reader = reader;
+        this.bytes = null;
+        this.chars = new char[BUFFER_SIZE];
+    }
+
+    /**
+     * Parses a properties file.
+     *
+     * @param values receives the key-value pairs
+     * @throws IOException if the text can't be read
+     * @throws IllegalArgumentException if the text contains a malformed backslash-u escape
+     */
+    void parse(StringTable.Builder values) throws IOException {
+        int c = read();
+        if (c == BYTE_ORDER_MARK) {
+            c = read();
+        }
+        while (c != EOF) {
+            // c is the first character of a natural line that starts a logical line.
+            while (isWhitespace(c)) {
+                c = read();
+            }
+            if (c == '\r' || c == '\n') {
+                c = read();
+                continue;
+            }
+            if (c == '#' || c == '!') {
+                while (c != '\r' && c != '\n' && c != EOF) {
+                    c = read();
+                }
+                continue;
+            }
+            if (c == EOF) {
+                break;
+            }
+            unread(c);
+            c = parseEntry(values);
+        }
+    }
+
+    /**
+     * Parses the key and value of one logical line.
+     *
+     * @return the first character after the logical line
+     */
+    private int parseEntry(StringTable.Builder values) throws IOException {
+        text.setLength(0);
+        int c = logical();
+        while (c >= 0 && c != '=' && c != ':' && !isWhitespace(c)) {
+            appendDecoded(c);
+            c = logical();
+        }
+        String key = text.toString();
+        if (c == '=' || c == ':') {
+            c = logical();
+        } else {
+            while (isWhitespace(c)) {
+                c = logical();
+            }
+            if (c == '=' || c == ':') {
+                c = logical();
+            }
+        }
+        while (isWhitespace(c)) {
+            c = logical();
+        }
+        text.setLength(0);
+        while (c >= 0) {
+            appendDecoded(c);
+            c = logical();
+        }
+        values.put(key, text.toString());
+        return c == EOF ? EOF : read();
+    }
+
+    private void appendDecoded(int c) throws IOException {
+        if (c < ESCAPED) {
+            text.append((char) c);
+            return;
+        }
+        switch (c - ESCAPED) {
+            case 't':
+                text.append('\t');
+                break;
+            case 'n':
+                text.append('\n');
+                break;
+            case 'r':
+                text.append('\r');
+                break;
+            case 'f':
+                text.append('\f');
+                break;
+            case 'u':
+                int codeUnit = 0;
+                for (int x = 0; x < 4; x++) {
+                    int h = logical();
+                    int digit = h >= 0 && h < ESCAPED ? Character.digit(h, 16) : -1;
+                    if (digit < 0) {
+                        throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+                    }
+                    codeUnit = (codeUnit << 4) + digit;
+                }
+                text.append((char) codeUnit);
+                break;
+            default:
+                text.append((char) (c - ESCAPED));
+        }
+    }
+
+    /**
+     * Returns the next character of the current logical line. Continuation lines are joined without their
+     * leading whitespace. An escaped character is returned as ESCAPED plus the character, and the end of
+     * the logical line is EOL, or EOF at the end of the input. After EOL, the next read starts the
+     * following natural line.
+     */
+    private int logical() throws IOException {
+        while (true) {
+            int c = read();
+            if (c == '\r') {
+                int next = read();
+                if (next != '\n') {
+                    unread(next);
+                }
+                return EOL;
+            }
+            if (c == '\n') {
+                return EOL;
+            }
+            if (c != '\\') {
+                return c;
+            }
+            c = read();
+            if (c == EOF) {
+                // A backslash at the end of the input is dropped.
+                return EOF;
+            }
+            if (c != '\r' && c != '\n') {
+                return ESCAPED + c;
+            }
+            if (c == '\r') {
+                c = read();
+                if (c != '\n') {
+                    unread(c);
+                }
+            }
+            do {
+                c = read();
+            } while (isWhitespace(c));
+            unread(c);
+        }
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\t' || c == '\f';
+    }
+
+    /**
+     * Pushes a character back. At most two characters are pushed back at a time: the low surrogate of a
+     * decoded supplementary character, and a character that the parser looked ahead at.
+     */
+    private void unread(int c) {
+        pushback[pushed++] = c;
+    }
+
+    /**
+     * Returns the next UTF-16 code unit of the input, or EOF.
+     */
+    private int read() throws IOException {
+        if (pushed > 0) {
+            return pushback[--pushed];
+        }
+        if (reader != null) {
+            if (position == limit && !fill()) {
+                return EOF;
+            }
+            return chars[position++];
+        }
+        int b = nextByte();
+        if (b < 0x80) {
+            return b;
+        }
+        return decode(b);
+    }
+
+    /**
+     * Decodes a UTF-8 sequence that starts with a non-ASCII byte. A supplementary character is returned as
+     * its high surrogate, and its low surrogate is returned by the next read.
+     */
+    private int decode(int lead) throws IOException {
+        int length;
+        int codePoint;
+        int min = 0x80;
+        int max = 0xBF;
+        if (lead >= 0xC2 && lead <= 0xDF) {
+            length = 1;
+            codePoint = lead & 0x1F;
+        } else if (lead >= 0xE0 && lead <= 0xEF) {
+            length = 2;
+            codePoint = lead & 0x0F;
+            if (lead == 0xE0) {
+                min = 0xA0;
+            } else if (lead == 0xED) {
+                max = 0x9F;
+            }
+        } else if (lead >= 0xF0 && lead <= 0xF4) {
+            length = 3;
+            codePoint = lead & 0x07;
+            if (lead == 0xF0) {
+                min = 0x90;
+            } else if (lead == 0xF4) {
+                max = 0x8F;
+            }
+        } else {
+            return REPLACEMENT;
+        }
+        for (int x = 0; x < length; x++) {
+            int b = nextByte();
+            if (b < min || b > max) {
+                // The byte doesn't continue the sequence, so it's read again on its own.
+                if (b != EOF) {
+                    position--;
+                }
+                return REPLACEMENT;
+            }
+            codePoint = (codePoint << 6) | (b & 0x3F);
+            min = 0x80;
+            max = 0xBF;
+        }
+        if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            return codePoint;
+        }
+        unread(Character.lowSurrogate(codePoint));
+        return Character.highSurrogate(codePoint);
+    }
+
+    private int nextByte() throws IOException {
+        if (position == limit) {
+            // Keep the last byte in the buffer so that decode can step back over it.
+            int keep = limit > 0 ? 1 : 0;
+            if (keep > 0) {
+                bytes[0] = bytes[limit - 1];
+            }
+            int n = in.read(bytes, keep, BUFFER_SIZE - keep);
+            if (n <= 0) {
+                limit = keep;
+                position = keep;
+                return EOF;
+            }
+            position = keep;
+            limit = keep + n;
+        }
+        return bytes[position++] & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        int n = reader.read(chars, 0, BUFFER_SIZE);
+        if (n <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = n;
+        return true;
+    }
+}
@@ -0,0 +1,115 @@
+package com.joconner.i18n;
+
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * ResourceNameCache memoizes the bundle and resource names that a control computes for each base name and
+ * candidate locale, and remembers which resources a class loader doesn't have. ResourceBundle.getBundle
+ * resolves the same candidate chains over and over; with this cache, repeated resolution neither builds
+ * the names again nor probes the class loader again for files that don't exist.
+ * <p>
+ * Lookups of names that are already cached don't allocate or lock. Missing resources are recorded per
+ * class loader, and class loaders are only weakly referenced.
+ *
+ * @author joconner
+ */
+final class ResourceNameCache {
+
+    private final ConcurrentMap<String, ConcurrentMap<Locale, String>> bundleNames = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConcurrentMap<String, String>> resourceNames = new ConcurrentHashMap<>();
+    private final Map<ClassLoader, Set<String>> missing = new WeakHashMap<>();
+    private volatile MissingEntry lastMissing;
+
+    /**
+     * Returns the cached bundle name, or null if it isn't cached yet.
+     */
+    String getBundleName(String baseName, Locale locale) {
+        ConcurrentMap<Locale, String> byLocale = bundleNames.get(baseName);
+        return byLocale == null ? null : byLocale.get(locale);
+    }
+
+    void putBundleName(String baseName, Locale locale, String bundleName) {
+        innerMap(bundleNames, baseName).put(locale, bundleName);
+    }
+
+    /**
+     * Returns the cached resource name, or null if it isn't cached yet.
+     */
+    String getResourceName(String bundleName, String suffix) {
+        ConcurrentMap<String, String> bySuffix = resourceNames.get(suffix);
+        return bySuffix == null ? null : bySuffix.get(bundleName);
+    }
+
+    void putResourceName(String bundleName, String suffix, String resourceName) {
+        innerMap(resourceNames, suffix).put(bundleName, resourceName);
+    }
+
+    /**
+     * Returns true if the class loader is known not to have the resource.
+     */
+    boolean isMissing(ClassLoader loader, String resourceName) {
+        Set<String> names = missingNames(loader, false);
+        return names != null && names.contains(resourceName);
+    }
+
+    void markMissing(ClassLoader loader, String resourceName) {
+        missingNames(loader, true).add(resourceName);
+    }
+
+    /**
+     * Forgets every cached name and every missing resource.
+     */
+    void clear() {
+        bundleNames.clear();
+        resourceNames.clear();
+        synchronized (missing) {
+            missing.clear();
+            lastMissing = null;
+        }
+    }
+
+    private Set<String> missingNames(ClassLoader loader, boolean create) {
+        // Most applications use a single class loader, so the last one is remembered to avoid the lock.
+        MissingEntry last = lastMissing;
+        if (last != null && loader != null && last.loader.get() == loader) {
+            return last.names;
+        }
+        synchronized (missing) {
+            Set<String> names = missing.get(loader);
+            if (names == null) {
+                if (!create) {
+                    return null;
+                }
+                names = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+                missing.put(loader, names);
+            }
+            lastMissing = new MissingEntry(loader, names);
+            return names;
+        }
+    }
+
+    private static <K, I, V> ConcurrentMap<I, V> innerMap(ConcurrentMap<K, ConcurrentMap<I, V>> outer, K key) {
+        ConcurrentMap<I, V> inner = outer.get(key);
+        if (inner == null) {
+            ConcurrentMap<I, V> created = new ConcurrentHashMap<>();
+            inner = outer.putIfAbsent(key, created);
+            if (inner == null) {
+                inner = created;
+            }
+        }
+        return inner;
+    }
+
+    private static final class MissingEntry {
+        final WeakReference<ClassLoader> loader;
+        final Set<String> names;
+
+        MissingEntry(ClassLoader loader, Set<String> names) {
+            this.loader = new WeakReference<>(loader);
+            this.names = names;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.joconner.i18n;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A ResourceSource locates the bundle files of a control somewhere other than in the control's class loader,
+ * for example in an external directory with DirectoryResourceSource or in a zip file with
+ * ZipResourceSource. Set a source on a control with PackageableResourceControl.setResourceSource; the
+ * control then reads its .json, .properties, and compiled bundle files from the source, and only class-based
+ * bundles come from the class loader.
+ * <p>
+ * Resource names are the names that the control computes with toResourceName, such as
+ * com/example/res/fr-ca/Foo.json. Implementations must be thread-safe.
+ *
+ * @author joconner
+ */
+public interface ResourceSource {
+
+    /**
+     * Opens a resource for reading.
+     *
+     * @param resourceName the name of the resource
+     * @param loader the class loader that ResourceBundle.getBundle passed to the control
+     * @return the stream, or null if the source doesn't have the resource
+     */
+    InputStream open(String resourceName, ClassLoader loader) throws IOException;
+
+    /**
+     * Returns the content of a resource as a read-only buffer, typically by memory-mapping the resource's file.
+     *
+     * @return the content, or null if the source doesn't have the resource
+     */
+    ByteBuffer map(String resourceName, ClassLoader loader) throws IOException;
+
+    /**
+     * Returns the current version of a resource. A control in hot reload mode records the version of each
+     * resource it reads and reloads the resource's bundles when the version changes. Finding the version
+     * should be cheap, such as reading a file's attributes; it must not read the resource.
+     *
+     * @return the version, or null if the source doesn't have the resource
+     */
+    Version version(String resourceName, ClassLoader loader) throws IOException;
+
+    /**
+     * The version of a resource, made of its last modification time and its size. Two versions are equal if
+     * both are equal.
+     */
+    final class Version {
+        private final long lastModified;
+        private final long size;
+
+        public Version(long lastModified, long size) {
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+
+        /**
+         * Returns the last modification time in milliseconds.
+         */
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Version)) {
+                return false;
+            }
+            Version other = (Version) o;
+            return lastModified == other.lastModified && size == other.size;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (lastModified ^ (lastModified >>> 32)) * 31 + (int) (size ^ (size >>> 32));
+        }
+
+        @Override
+        public String toString() {
+            return "lastModified=" + lastModified + ", size=" + size;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.joconner.i18n;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ResourceWatcher watches the directories of bundle files that were loaded from the file system, such as
+ * the exploded resource directories of an IDE or a staging server. A single daemon thread receives change
+ * events from a WatchService and counts the changes of each file. A control records the count of a
+ * bundle's file before it reads the file, and the bundle is stale once the count differs. Unlike a
+ * comparison of times, a count can't miss a change that the watcher handles while the file is being read.
+ * Asking for the count is a map lookup that never touches the file system.
+ * <p>
+ * Bundles that are loaded from jar files or other non-file locations aren't watched.
+ *
+ * @author joconner
+ */
+class ResourceWatcher implements Closeable {
+
+    private final WatchService watchService;
+    private final ConcurrentMap<Path, WatchKey> directories = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Path> resources = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Path, AtomicLong> changes = new ConcurrentHashMap<>();
+    private final Thread thread;
+    private volatile boolean closed;
+
+    ResourceWatcher() throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                processEvents();
+            }
+        }, "enhanced-resources-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Starts watching the file of a resource if the resource is a file on the default file system.
+     *
+     * @param resourceName the resource name of the bundle, as used by the control
+     * @param url the location of the resource, may be null
+     */
+    void watch(String resourceName, URL url) throws IOException {
+        if (url == null || !"file".equals(url.getProtocol()) || closed) {
+            return;
+        }
+        Path file;
+        try {
+            file = Paths.get(url.toURI()).toAbsolutePath();
+        } catch (URISyntaxException e) {
+            return;
+        }
+        Path directory = file.getParent();
+        if (directory != null && !directories.containsKey(directory)) {
+            WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            directories.putIfAbsent(directory, key);
+        }
+        resources.put(resourceName, file);
+    }
+
+    /**
+     * Returns the number of changes of the file of a resource that the watcher has seen, or 0 if the
+     * resource isn't watched. Start watching a resource before reading it, so that no change between the
+     * read and the start of watching is missed.
+     *
+     * @param resourceName the resource name of the bundle
+     */
+    long changeCount(String resourceName) {
+        Path file = resources.get(resourceName);
+        if (file == null) {
+            return 0;
+        }
+        AtomicLong count = changes.get(file);
+        return count == null ? 0 : count.get();
+    }
+
+    private void changed(Path file) {
+        AtomicLong count = changes.get(file);
+        if (count == null) {
+            AtomicLong created = new AtomicLong();
+            count = changes.putIfAbsent(file, created);
+            if (count == null) {
+                count = created;
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    private void processEvents() {
+        while (!closed) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path directory = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    // Events were lost, so every file in the directory may have changed.
+                    for (Path file : resources.values()) {
+                        if (directory.equals(file.getParent())) {
+                            changed(file);
+                        }
+                    }
+                } else {
+                    changed(directory.resolve((Path) event.context()));
+                }
+            }
+            if (!key.reset()) {
+                directories.remove(directory, key);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        watchService.close();
+        thread.interrupt();
+    }
+}
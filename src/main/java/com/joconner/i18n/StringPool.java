@@ -0,0 +1,93 @@
+package com.joconner.i18n;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * StringPool deduplicates the keys and values of bundles while they load. Applications that load many base
+ * names in many locales repeat the same strings across bundles: brand names, placeholders, and source text
+ * copied into untranslated locales. When the controls share a pool, every bundle refers to a single copy of
+ * each distinct string.
+ * <p>
+ * The pool references its strings weakly, so a string is collected once no bundle refers to it any more.
+ * The pool takes a lock for each string, which is acceptable because it is only used while bundles load,
+ * never during lookups.
+ *
+ * @author joconner
+ */
+public class StringPool {
+
+    private final Map<String, WeakReference<String>> strings = new WeakHashMap<>();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder bytesSaved = new LongAdder();
+
+    /**
+     * Returns the pooled copy of a string, adding the string to the pool if the pool doesn't have
+     * an equal string yet.
+     *
+     * @param value a string or null
+     * @return an equal string from the pool, or null if value is null
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        lookups.increment();
+        synchronized (strings) {
+            WeakReference<String> reference = strings.get(value);
+            String pooled = reference == null ? null : reference.get();
+            if (pooled != null) {
+                if (pooled != value) {
+                    duplicates.increment();
+                    bytesSaved.add(estimateSize(value));
+                }
+                return pooled;
+            }
+            strings.put(value, new WeakReference<>(value));
+            return value;
+        }
+    }
+
+    /**
+     * Returns the number of strings in the pool that haven't been collected yet.
+     */
+    public int size() {
+        synchronized (strings) {
+            return strings.size();
+        }
+    }
+
+    /**
+     * Returns the number of strings that were passed to intern.
+     */
+    public long getLookups() {
+        return lookups.sum();
+    }
+
+    /**
+     * Returns the number of strings for which intern returned an existing copy.
+     */
+    public long getDuplicates() {
+        return duplicates.sum();
+    }
+
+    /**
+     * Returns an estimate of the heap that deduplication saved, in bytes. Each duplicate is counted as the
+     * size of a String object and its character array on a 64-bit JVM with compressed references,
+     * assuming two bytes per character.
+     */
+    public long getBytesSaved() {
+        return bytesSaved.sum();
+    }
+
+    static long estimateSize(String value) {
+        return 24 + align(16 + 2L * value.length());
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+}
@@ -0,0 +1,191 @@
+package com.joconner.i18n;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * StringTable is a compact, immutable String-to-String map used as the backing store
+ * of the bundles in this package. Keys and values live in two parallel arrays that are
+ * indexed by open addressing with linear probing, so a lookup is a single hash probe
+ * and never allocates.
+ * <p>
+ * Tables are created once, when a bundle loads, and are never modified afterwards.
+ * That makes them safe to share between threads without any locking.
+ *
+ * @author joconner
+ */
+final class StringTable {
+
+    static final StringTable EMPTY = new StringTable(new String[0], new String[0]);
+
+    private final String[] keys;
+    private final String[] values;
+    private final String[] keyArray;
+    private final int mask;
+
+    private StringTable(String[] keys, String[] values) {
+        this.keys = keys;
+        this.values = values;
+        this.mask = keys.length - 1;
+        int count = 0;
+        for (String key : keys) {
+            if (key != null) {
+                count++;
+            }
+        }
+        String[] keyArray = new String[count];
+        int n = 0;
+        for (String key : keys) {
+            if (key != null) {
+                keyArray[n++] = key;
+            }
+        }
+        this.keyArray = keyArray;
+    }
+
+    /**
+     * Creates a table that contains all entries of the map. Null keys and null values
+     * are not allowed.
+     *
+     * @param entries the key-value pairs to copy into the table
+     * @return a new table
+     */
+    static StringTable of(Map<String, String> entries) {
+        return of(entries, null);
+    }
+
+    /**
+     * Creates a table that contains all entries of the map, replacing keys and values with their
+     * copies from the pool if a pool is given.
+     *
+     * @param entries the key-value pairs to copy into the table
+     * @param pool the pool that deduplicates keys and values, or null
+     * @return a new table
+     */
+    static StringTable of(Map<String, String> entries, StringPool pool) {
+        Builder builder = new Builder(pool);
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            builder.put(entry.getKey(), entry.getValue());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Collects key-value pairs in insertion order and builds a table from them. If a key is put
+     * more than once, the last value wins. Parsers put their pairs directly into a builder so that
+     * no intermediate map is created while a bundle loads.
+     */
+    static final class Builder {
+        private final StringPool pool;
+        private String[] keys = new String[16];
+        private String[] values = new String[16];
+        private int count;
+
+        Builder() {
+            this(null);
+        }
+
+        /**
+         * @param pool the pool that deduplicates keys and values, or null
+         */
+        Builder(StringPool pool) {
+            this.pool = pool;
+        }
+
+        Builder put(String key, String value) {
+            if (key == null || value == null) {
+                throw new NullPointerException("Null keys and values are not allowed.");
+            }
+            if (count == keys.length) {
+                keys = Arrays.copyOf(keys, count * 2);
+                values = Arrays.copyOf(values, count * 2);
+            }
+            keys[count] = pool == null ? key : pool.intern(key);
+            values[count] = pool == null ? value : pool.intern(value);
+            count++;
+            return this;
+        }
+
+        /**
+         * Puts every key-value pair of a table.
+         */
+        Builder putAll(StringTable table) {
+            for (int x = 0; x < table.keys.length; x++) {
+                if (table.keys[x] != null) {
+                    put(table.keys[x], table.values[x]);
+                }
+            }
+            return this;
+        }
+
+        StringTable build() {
+            if (count == 0) {
+                return EMPTY;
+            }
+            int capacity = capacityFor(count);
+            String[] tableKeys = new String[capacity];
+            String[] tableValues = new String[capacity];
+            int mask = capacity - 1;
+            for (int x = 0; x < count; x++) {
+                String key = keys[x];
+                int index = indexFor(key, mask);
+                while (tableKeys[index] != null && !tableKeys[index].equals(key)) {
+                    index = (index + 1) & mask;
+                }
+                tableKeys[index] = key;
+                tableValues[index] = values[x];
+            }
+            return new StringTable(tableKeys, tableValues);
+        }
+    }
+
+    /**
+     * Returns the value for the key, or null if the table doesn't contain the key.
+     */
+    String get(String key) {
+        if (keyArray.length == 0) {
+            return null;
+        }
+        int index = indexFor(key, mask);
+        String candidate;
+        while ((candidate = keys[index]) != null) {
+            if (candidate == key || candidate.equals(key)) {
+                return values[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    boolean containsKey(String key) {
+        return get(key) != null;
+    }
+
+    int size() {
+        return keyArray.length;
+    }
+
+    /**
+     * Returns the keys of this table in probe order. The array is shared by every
+     * caller and must not be modified.
+     */
+    String[] keys() {
+        return keyArray;
+    }
+
+    private static int indexFor(String key, int mask) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Keeps the load factor at or below one half so that probe sequences stay short.
+     */
+    private static int capacityFor(int size) {
+        int capacity = 2;
+        while (capacity < size * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,103 @@
+package com.joconner.i18n;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.Set;
+
+/**
+ * A Utf8PropertiesResourceBundle holds the key-value pairs of a properties file in the same compact table
+ * that JsonResourceBundle uses. It's the bundle that Utf8ResourceBundleControl creates for properties files.
+ * <p>
+ * Unlike PropertyResourceBundle, which loads through a synchronized Properties table and then copies
+ * the entries into a HashMap, this bundle parses the UTF-8 bytes of the file in a single pass straight
+ * into its table. The syntax is the same as the syntax of Properties.load.
+ *
+ * @author joconner
+ */
+public class Utf8PropertiesResourceBundle extends IndexedResourceBundle {
+
+    private final StringTable resources;
+    private final Set<String> ownKeySet;
+
+    /**
+     * Creates a bundle from the UTF-8 encoded bytes of a properties file.
+     *
+     * @param stream
+     * @throws IOException
+     */
+    public Utf8PropertiesResourceBundle(InputStream stream) throws IOException {
+        this(stream, null);
+    }
+
+    /**
+     * Creates a bundle from the UTF-8 encoded bytes of a properties file, deduplicating keys and values
+     * through a shared string pool.
+     *
+     * @param stream
+     * @param pool the pool that deduplicates keys and values, or null
+     * @throws IOException
+     */
+    public Utf8PropertiesResourceBundle(InputStream stream, StringPool pool) throws IOException {
+        if (stream == null) {
+            throw new NullPointerException("Stream is null.");
+        }
+        StringTable.Builder values = new StringTable.Builder(pool);
+        new PropertiesBundleParser(stream).parse(values);
+        resources = values.build();
+        ownKeySet = KeyArray.asSet(resources);
+    }
+
+    /**
+     * Creates a bundle from the text of a properties file.
+     *
+     * @param reader
+     * @throws IOException
+     */
+    public Utf8PropertiesResourceBundle(Reader reader) throws IOException {
+        this(reader, null);
+    }
+
+    /**
+     * Creates a bundle whose keys and values are deduplicated through a shared string pool.
+     *
+     * @param reader
+     * @param pool the pool that deduplicates keys and values, or null
+     * @throws IOException
+     */
+    public Utf8PropertiesResourceBundle(Reader reader, StringPool pool) throws IOException {
+        if (reader == null) {
+            throw new NullPointerException("Reader is null.");
+        }
+        StringTable.Builder values = new StringTable.Builder(pool);
+        new PropertiesBundleParser(reader).parse(values);
+        resources = values.build();
+        ownKeySet = KeyArray.asSet(resources);
+    }
+
+    @Override
+    String ownValue(String key) {
+        return resources.get(key);
+    }
+
+    /**
+     * Returns an unmodifiable view of the keys contained in this bundle only.
+     */
+    @Override
+    protected Set<String> handleKeySet() {
+        return ownKeySet;
+    }
+
+    @Override
+    String[] ownKeys() {
+        return resources.keys();
+    }
+
+    /**
+     * Returns the key-value pairs of this bundle only.
+     */
+    @Override
+    StringTable table() {
+        return resources;
+    }
+}
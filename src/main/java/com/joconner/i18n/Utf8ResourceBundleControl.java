@@ -2,19 +2,19 @@ package com.joconner.i18n;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
-import java.net.URL;
-import java.net.URLConnection;
-import java.util.Locale;
-import java.util.PropertyResourceBundle;
-import java.util.ResourceBundle;
+import java.util.*;
 
 /**
  * Created by joconner on 1/11/17.
  */
 public class Utf8ResourceBundleControl extends PackageableResourceControl {
+    private static final List<String> compiledFormats;
 
+    static {
+        compiledFormats = new ArrayList<>();
+        compiledFormats.add(FORMAT_COMPILED);
+        compiledFormats.addAll(ResourceBundle.Control.FORMAT_DEFAULT);
+    }
 
     public Utf8ResourceBundleControl() {}
 
@@ -22,53 +22,48 @@ public class Utf8ResourceBundleControl extends PackageableResourceControl {
         super(isPackageBased);
     }
 
-    public ResourceBundle newBundle(String baseName, Locale locale, String format,
-                                    ClassLoader loader, boolean reload)
+    /**
+     * Returns "java.class" and "java.properties". If the control uses compiled bundles,
+     * "erb" is the first format in the list. If the control has a manifest, only the formats of the
+     * listed bundles of the base name are returned.
+     */
+    @Override
+    public List<String> getFormats(String baseName) {
+        return filterFormats(baseName, useCompiledBundles ? compiledFormats : super.getFormats(baseName));
+    }
+
+    @Override
+    ResourceBundle loadBundle(String baseName, Locale locale, String format, ClassLoader loader, boolean reload)
             throws IllegalAccessException, InstantiationException, IOException {
+        long start = System.nanoTime();
+        long bytes = -1;
         String bundleName = toBundleName(baseName, locale);
         ResourceBundle bundle = null;
-        if (format.equals("java.class")) {
-            bundle = super.newBundle(baseName, locale, format, loader, reload);
+        if (isUnlisted(baseName, locale, format)) {
+            // The manifest says that the bundle doesn't exist.
+        } else if (format.equals("java.class")) {
+            bundle = newDefaultBundle(baseName, locale, format, loader, reload);
         } else if (format.equals("java.properties")) {
             final String resourceName = bundleName.contains("://") ? null :
-                    toResourceName(bundleName, "properties");
-            if (resourceName == null) {
-                return bundle;
-            }
-            final ClassLoader classLoader = loader;
-            InputStream stream = null;
-            if (reload) {
-                stream = reload(resourceName, classLoader);
-            } else {
-                stream = classLoader.getResourceAsStream(resourceName);
-            }
+                    resourceName(bundleName, "properties");
+            InputStream stream = resourceName == null ? null : openResource(resourceName, loader, reload);
             if (stream != null) {
-                Reader reader = new InputStreamReader(stream, "UTF-8");
                 try {
-                    bundle = new PropertyResourceBundle(reader);
+                    bundle = new Utf8PropertiesResourceBundle(stream, stringPool);
                 } finally {
-                    reader.close();
+                    stream.close();
                 }
+                bytes = CountingInputStream.bytesRead(stream);
+            }
+        } else if (format.equals(FORMAT_COMPILED)) {
+            bundle = newCompiledBundle(bundleName, loader, reload);
+            if (bundle != null) {
+                bytes = ((CompiledResourceBundle) bundle).byteSize();
             }
         } else {
             throw new IllegalArgumentException("Unknown format: " + format);
         }
-        return bundle;
-    }
-
-    InputStream reload(String resourceName, ClassLoader classLoader) throws IOException {
-        InputStream stream = null;
-        URL url = classLoader.getResource(resourceName);
-        if (url != null) {
-            URLConnection connection = url.openConnection();
-            if (connection != null) {
-                // Disable caches to get fresh data for
-                // reloading.
-                connection.setUseCaches(false);
-                stream = connection.getInputStream();
-            }
-        }
-        return stream;
+        return recordLoad(bundle, format, locale, reload, start, bytes);
     }
 
 
@@ -0,0 +1,211 @@
+package com.joconner.i18n;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ZipResourceSource reads bundle files from the entries of a zip or jar file through the zip file system
+ * provider, so that a set of translations can be shipped and replaced as one archive:
+ * <pre>
+ * ZipResourceSource source = new ZipResourceSource(Paths.get("/opt/app/translations.zip"));
+ * JsonResourceBundleControl control = new JsonResourceBundleControl(true);
+ * control.setResourceSource(source);
+ * </pre>
+ * The resource com/example/res/fr-ca/Foo.json is the archive's entry of the same name. The archive is
+ * opened when the first resource is read. Every entry has the version of the archive file, its modification
+ * time and size, so replacing the archive changes the version of all its resources; the archive is then
+ * opened again when the next resource is read. The replaced archive stays open until the last stream
+ * that was opened from it is closed. Close the source when it's no longer used.
+ *
+ * @author joconner
+ */
+public class ZipResourceSource extends PathResourceSource implements Closeable {
+
+    private final Path archive;
+    private volatile Archive current;
+    private boolean closed;
+
+    public ZipResourceSource(Path archive) {
+        if (archive == null) {
+            throw new NullPointerException("Archive is null.");
+        }
+        this.archive = archive.toAbsolutePath().normalize();
+    }
+
+    public Path getArchive() {
+        return archive;
+    }
+
+    @Override
+    public InputStream open(String resourceName, ClassLoader loader) throws IOException {
+        final Archive opened = acquire();
+        if (opened == null) {
+            return null;
+        }
+        InputStream in;
+        try {
+            in = openFile(resolve(opened.root, resourceName));
+        } catch (IOException | RuntimeException e) {
+            opened.release();
+            throw e;
+        }
+        if (in == null) {
+            opened.release();
+            return null;
+        }
+        return new FilterInputStream(in) {
+            private boolean released;
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    if (!released) {
+                        released = true;
+                        opened.release();
+                    }
+                }
+            }
+        };
+    }
+
+    @Override
+    public ByteBuffer map(String resourceName, ClassLoader loader) throws IOException {
+        Archive opened = acquire();
+        if (opened == null) {
+            return null;
+        }
+        try {
+            return mapFile(resolve(opened.root, resourceName));
+        } finally {
+            opened.release();
+        }
+    }
+
+    @Override
+    public Version version(String resourceName, ClassLoader loader) throws IOException {
+        Archive opened = acquire();
+        if (opened == null) {
+            return null;
+        }
+        try {
+            Path file = resolve(opened.root, resourceName);
+            return file != null && Files.isRegularFile(file) ? opened.version : null;
+        } finally {
+            opened.release();
+        }
+    }
+
+    /**
+     * Returns the root directory of the current archive. The archive may be closed as soon as it's
+     * replaced; the methods of this class read through acquire instead.
+     */
+    @Override
+    Path root() throws IOException {
+        Archive opened = acquire();
+        if (opened == null) {
+            return null;
+        }
+        opened.release();
+        return opened.root;
+    }
+
+    /**
+     * Returns the current archive with one more reader, and opens the archive again if the archive file
+     * changed. Returns null if there is no archive file. Call Archive.release when done reading.
+     */
+    private Archive acquire() throws IOException {
+        Version version = versionOf(archive);
+        Archive opened = current;
+        if (opened != null && opened.version.equals(version) && opened.acquire()) {
+            return opened;
+        }
+        synchronized (this) {
+            opened = current;
+            if (opened != null && opened.version.equals(version) && opened.acquire()) {
+                return opened;
+            }
+            if (closed) {
+                throw new IOException("The resource source is closed: " + archive);
+            }
+            current = null;
+            if (opened != null) {
+                // Readers of the replaced archive close it when they're done.
+                opened.release();
+            }
+            if (version == null) {
+                return null;
+            }
+            FileSystem fileSystem = FileSystems.newFileSystem(archive, (ClassLoader) null);
+            opened = new Archive(fileSystem, version);
+            opened.acquire();
+            current = opened;
+            return opened;
+        }
+    }
+
+    /**
+     * Closes the archive once no stream that was opened from it is still open.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        Archive opened = current;
+        current = null;
+        if (opened != null) {
+            opened.release();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ZipResourceSource[" + archive + "]";
+    }
+
+    /**
+     * An open archive. The source holds one reference to its current archive and each reader holds one
+     * more; the file system is closed when the last reference is released.
+     */
+    private static final class Archive {
+        final FileSystem fileSystem;
+        final Path root;
+        final Version version;
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        Archive(FileSystem fileSystem, Version version) {
+            this.fileSystem = fileSystem;
+            this.root = fileSystem.getPath("/");
+            this.version = version;
+        }
+
+        /**
+         * Adds a reference, or returns false if the archive is already closed.
+         */
+        boolean acquire() {
+            while (true) {
+                int count = references.get();
+                if (count == 0) {
+                    return false;
+                }
+                if (references.compareAndSet(count, count + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        void release() throws IOException {
+            if (references.decrementAndGet() == 0) {
+                fileSystem.close();
+            }
+        }
+    }
+}
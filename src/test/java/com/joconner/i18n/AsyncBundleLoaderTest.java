@@ -0,0 +1,112 @@
+package com.joconner.i18n;
+
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author joconner
+ */
+public class AsyncBundleLoaderTest {
+
+    /**
+     * Queues tasks until the test runs them.
+     */
+    private static class QueueExecutor implements Executor {
+        final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+    }
+
+    @Test
+    public void concurrentRequestsShareOneLoad() throws Exception {
+        QueueExecutor executor = new QueueExecutor();
+        AsyncBundleLoader loader = new AsyncBundleLoader(executor);
+        JsonResourceBundleControl control = new JsonResourceBundleControl(true);
+        ClassLoader classLoader = getClass().getClassLoader();
+
+        CompletableFuture<ResourceBundle> first = loader.getBundle("com.joconner.i18n.res.Test", Locale.JAPANESE,
+                classLoader, control);
+        CompletableFuture<ResourceBundle> second = loader.getBundle("com.joconner.i18n.res.Test", Locale.JAPANESE,
+                classLoader, control);
+        assertSame(first, second);
+        assertFalse(first.isDone());
+        assertEquals(1, executor.tasks.size());
+
+        executor.tasks.get(0).run();
+        assertEquals("おはようございます！", first.get().getString("GREETING_MORNING"));
+
+        CompletableFuture<ResourceBundle> loaded = loader.getBundle("com.joconner.i18n.res.Test", Locale.JAPANESE,
+                classLoader, control);
+        assertTrue(loaded.isDone());
+        assertSame(first.get(), loaded.get());
+        assertEquals(1, executor.tasks.size());
+    }
+
+    @Test
+    public void missingBundleCompletesExceptionally() throws Exception {
+        QueueExecutor executor = new QueueExecutor();
+        AsyncBundleLoader loader = new AsyncBundleLoader(executor);
+        CompletableFuture<ResourceBundle> future = loader.getBundle("com.joconner.i18n.res.Missing", Locale.JAPANESE,
+                getClass().getClassLoader(), new JsonResourceBundleControl(true));
+        executor.tasks.get(0).run();
+        try {
+            future.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof MissingResourceException);
+        }
+    }
+
+    @Test
+    public void defaultExecutor() throws Exception {
+        AsyncBundleLoader loader = new AsyncBundleLoader();
+        ResourceBundle bundle = loader.getBundle("com.joconner.i18n.res.Utf8Resources", Locale.JAPANESE,
+                new Utf8ResourceBundleControl()).get(10, TimeUnit.SECONDS);
+        assertEquals("こんにちは！", bundle.getString("HELLO"));
+    }
+
+    @Test
+    public void forgetsBundlesOfCollectedClassLoaders() throws Exception {
+        QueueExecutor executor = new QueueExecutor();
+        AsyncBundleLoader loader = new AsyncBundleLoader(executor);
+        ResourceBundle.Control control = ResourceBundle.Control.getControl(ResourceBundle.Control.FORMAT_PROPERTIES);
+        URL resources = new URL(getClass().getResource("/com/joconner/i18n/res/Test.properties"), "../../../../");
+        ClassLoader classLoader = new URLClassLoader(new URL[]{resources}, null);
+        CompletableFuture<ResourceBundle> future = loader.getBundle("com.joconner.i18n.res.Test", Locale.ENGLISH,
+                classLoader, control);
+        executor.tasks.get(0).run();
+        assertEquals("Good morning!", future.get().getString("GREETING_MORNING"));
+        assertEquals(1, loader.loadedCount());
+
+        executor.tasks.clear();
+        WeakReference<ClassLoader> collected = new WeakReference<>(classLoader);
+        classLoader = null;
+        for (int x = 0; x < 100 && collected.get() != null; x++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(collected.get());
+        for (int x = 0; x < 100 && loader.loadedCount() > 0; x++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, loader.loadedCount());
+    }
+
+}
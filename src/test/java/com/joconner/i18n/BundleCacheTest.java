@@ -0,0 +1,207 @@
+package com.joconner.i18n;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.ResourceBundle;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author joconner
+ */
+public class BundleCacheTest {
+
+    private static final String TEST_BUNDLE = "com.joconner.i18n.res.Test";
+    private static final String UTF8_BUNDLE = "com.joconner.i18n.res.Utf8Resources";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ClassLoader newLoader() throws Exception {
+        URL resources = new URL(getClass().getResource("/com/joconner/i18n/res/Test.properties"), "../../../../");
+        return new URLClassLoader(new URL[]{resources}, null);
+    }
+
+    private Utf8ResourceBundleControl newControl(BundleCache cache) {
+        Utf8ResourceBundleControl control = new Utf8ResourceBundleControl(true);
+        control.setBundleCache(cache);
+        return control;
+    }
+
+    private long chainWeight(String baseName, Locale locale) throws Exception {
+        BundleCache cache = new BundleCache(Long.MAX_VALUE);
+        ResourceBundle.getBundle(baseName, locale, newLoader(), newControl(cache));
+        return cache.getWeight();
+    }
+
+    @Test
+    public void cachesEveryBundleOfTheChain() throws Exception {
+        BundleCache cache = new BundleCache(Long.MAX_VALUE);
+        Utf8ResourceBundleControl control = newControl(cache);
+        ClassLoader loader = newLoader();
+        assertEquals(ResourceBundle.Control.TTL_DONT_CACHE, control.getTimeToLive(TEST_BUNDLE, Locale.CANADA));
+
+        ResourceBundle bundle = ResourceBundle.getBundle(TEST_BUNDLE, Locale.CANADA, loader, control);
+        assertEquals(3, cache.size());
+        assertEquals(0, cache.getStatistics().getHits());
+        assertEquals(3, cache.getStatistics().getMisses());
+        assertTrue(cache.getWeight() > 0);
+
+        ResourceBundle again = ResourceBundle.getBundle(TEST_BUNDLE, Locale.CANADA, loader, control);
+        assertSame(bundle, again);
+        assertEquals("It's morning, hoser!", again.getString("GREETING_MORNING"));
+        assertEquals("Good evening!", again.getString("GREETING_NIGHT"));
+        assertEquals("Good afternoon!", again.getString("GREETING_NOON"));
+        assertEquals(3, cache.getStatistics().getHits());
+        assertEquals(3, cache.getStatistics().getMisses());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedChains() throws Exception {
+        long testWeight = chainWeight(TEST_BUNDLE, Locale.CANADA);
+        long utf8Weight = chainWeight(UTF8_BUNDLE, Locale.JAPANESE);
+        BundleCache cache = new BundleCache(Math.max(testWeight, utf8Weight));
+        Utf8ResourceBundleControl control = newControl(cache);
+        ClassLoader loader = newLoader();
+
+        ResourceBundle.getBundle(TEST_BUNDLE, Locale.CANADA, loader, control);
+        assertEquals(3, cache.size());
+        ResourceBundle utf8Bundle = ResourceBundle.getBundle(UTF8_BUNDLE, Locale.JAPANESE, loader, control);
+        assertEquals("こんにちは！", utf8Bundle.getString("HELLO"));
+
+        BundleCache.Statistics statistics = cache.getStatistics();
+        assertEquals(2, statistics.getSize());
+        assertEquals(utf8Weight, statistics.getWeight());
+        assertEquals(3, statistics.getEvictions());
+        assertEquals(testWeight, statistics.getEvictedWeight());
+        assertTrue(cache.getWeight() <= cache.getMaximumWeight());
+    }
+
+    @Test
+    public void keepsPinnedLocales() throws Exception {
+        long testWeight = chainWeight(TEST_BUNDLE, Locale.CANADA);
+        BundleCache cache = new BundleCache(testWeight);
+        cache.pin(Locale.CANADA);
+        Utf8ResourceBundleControl control = newControl(cache);
+        ClassLoader loader = newLoader();
+
+        ResourceBundle canadian = ResourceBundle.getBundle(TEST_BUNDLE, Locale.CANADA, loader, control);
+        ResourceBundle.getBundle(UTF8_BUNDLE, Locale.JAPANESE, loader, control);
+        assertEquals(5, cache.size());
+        assertEquals(0, cache.getStatistics().getEvictions());
+        assertSame(canadian, ResourceBundle.getBundle(TEST_BUNDLE, Locale.CANADA, loader, control));
+
+        cache.unpin(Locale.CANADA);
+        assertEquals(3, cache.size());
+        assertEquals(2, cache.getStatistics().getEvictions());
+        assertNull(cache.get(control, UTF8_BUNDLE, Locale.JAPANESE, loader));
+    }
+
+    @Test
+    public void evictingAParentEvictsItsChildren() throws Exception {
+        BundleCache cache = new BundleCache(Long.MAX_VALUE);
+        Utf8ResourceBundleControl control = newControl(cache);
+        ClassLoader loader = newLoader();
+        ResourceBundle.getBundle(TEST_BUNDLE, Locale.CANADA, loader, control);
+        ResourceBundle.getBundle(UTF8_BUNDLE, Locale.JAPANESE, loader, control);
+        assertEquals(5, cache.size());
+
+        BundleCache.Entry root = cache.get(control, TEST_BUNDLE, Locale.ROOT, loader);
+        assertNotNull(root);
+        cache.invalidate(root);
+        assertEquals(2, cache.size());
+        assertNull(cache.get(control, TEST_BUNDLE, Locale.CANADA, loader));
+        assertNotNull(cache.get(control, UTF8_BUNDLE, Locale.JAPANESE, loader));
+        assertEquals(0, cache.getStatistics().getEvictions());
+    }
+
+    @Test
+    public void servedBundlesAreEvictedLast() throws Exception {
+        long testWeight = chainWeight(TEST_BUNDLE, Locale.CANADA);
+        BundleCache cache = new BundleCache(2 * testWeight);
+        Utf8ResourceBundleControl control = newControl(cache);
+        ClassLoader first = newLoader();
+        ClassLoader second = newLoader();
+        ResourceBundle.getBundle(TEST_BUNDLE, Locale.CANADA, first, control);
+        ResourceBundle.getBundle(TEST_BUNDLE, Locale.CANADA, second, control);
+        ResourceBundle.getBundle(TEST_BUNDLE, Locale.CANADA, first, control);
+
+        ResourceBundle.getBundle(TEST_BUNDLE, Locale.CANADA, newLoader(), control);
+        assertEquals(6, cache.size());
+        assertEquals(3, cache.getStatistics().getEvictions());
+        assertNotNull(cache.get(control, TEST_BUNDLE, Locale.CANADA, first));
+        assertNull(cache.get(control, TEST_BUNDLE, Locale.ROOT, second));
+    }
+
+    @Test
+    public void staleBundlesAreNotCountedAsHits() throws Exception {
+        Path root = folder.getRoot().toPath();
+        Files.createDirectories(root.resolve("res/ja"));
+        Files.write(root.resolve("res/Hot.json"), "{\"GREETING\": \"Hello\"}".getBytes(StandardCharsets.UTF_8));
+        Path japanese = root.resolve("res/ja/Hot.json");
+        Files.write(japanese, "{\"GREETING\": \"こんにちは\"}".getBytes(StandardCharsets.UTF_8));
+        ClassLoader loader = new URLClassLoader(new URL[]{root.toUri().toURL()}, null);
+        BundleCache cache = new BundleCache(Long.MAX_VALUE);
+        JsonResourceBundleControl control = new JsonResourceBundleControl(true);
+        control.setBundleCache(cache);
+        control.setHotReload(true);
+        try {
+            ResourceBundle bundle = ResourceBundle.getBundle("res.Hot", Locale.JAPANESE, loader, control);
+            Files.write(japanese, "{\"GREETING\": \"おはよう\"}".getBytes(StandardCharsets.UTF_8));
+            int served = 0;
+            ResourceBundle reloaded = bundle;
+            for (int x = 0; x < 200 && reloaded == bundle; x++) {
+                Thread.sleep(50);
+                reloaded = ResourceBundle.getBundle("res.Hot", Locale.JAPANESE, loader, control);
+                if (reloaded == bundle) {
+                    served++;
+                }
+            }
+            assertEquals("おはよう", reloaded.getString("GREETING"));
+            // The root bundle is served by every lookup, the stale Japanese bundle by none.
+            assertEquals(2 * served + 1, cache.getStatistics().getHits());
+            assertEquals(3, cache.getStatistics().getMisses());
+        } finally {
+            control.setHotReload(false);
+        }
+    }
+
+    @Test
+    public void evictionLooksAtEachEntryAtMostTwice() throws Exception {
+        long testWeight = chainWeight(TEST_BUNDLE, Locale.CANADA);
+        int chains = 20;
+        BundleCache cache = new BundleCache(chains * testWeight);
+        Utf8ResourceBundleControl control = newControl(cache);
+        List<ClassLoader> loaders = new ArrayList<>();
+        for (int x = 0; x < chains; x++) {
+            loaders.add(newLoader());
+            ResourceBundle.getBundle(TEST_BUNDLE, Locale.CANADA, loaders.get(x), control);
+        }
+        // Every entry was served since it was queued.
+        for (ClassLoader loader : loaders) {
+            ResourceBundle.getBundle(TEST_BUNDLE, Locale.CANADA, loader, control);
+        }
+        assertEquals(0, cache.getVisited());
+
+        ResourceBundle.getBundle(TEST_BUNDLE, Locale.CANADA, newLoader(), control);
+        assertEquals(3, cache.getStatistics().getEvictions());
+        long firstEviction = cache.getVisited();
+        assertTrue(firstEviction <= 2 * 3 * chains + 1);
+
+        // The flags were cleared, so the next victim is at the front of the queue.
+        ResourceBundle.getBundle(TEST_BUNDLE, Locale.CANADA, newLoader(), control);
+        assertEquals(6, cache.getStatistics().getEvictions());
+        assertEquals(1, cache.getVisited() - firstEviction);
+    }
+
+}
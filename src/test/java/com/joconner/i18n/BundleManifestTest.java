@@ -0,0 +1,93 @@
+package com.joconner.i18n;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author joconner
+ */
+public class BundleManifestTest {
+
+    private static final List<String> RESOURCES = Arrays.asList(
+            "com/joconner/i18n/res/Test.properties",
+            "com/joconner/i18n/res/en/Test.properties",
+            "com/joconner/i18n/res/en-ca/Test.properties",
+            "com/joconner/i18n/res/ja/Test.json");
+
+    @Test
+    public void read() throws Exception {
+        List<String> resourceNames = BundleManifest.read(new StringReader("# bundles\n\ncom/example/Foo.json\n  com/example/fr/Foo.json \n"));
+        assertEquals(Arrays.asList("com/example/Foo.json", "com/example/fr/Foo.json"), resourceNames);
+    }
+
+    @Test
+    public void covers() throws Exception {
+        BundleManifest manifest = new BundleManifest(RESOURCES);
+        assertTrue(manifest.covers("com.joconner.i18n.res.Test"));
+        assertFalse(manifest.covers("com.joconner.i18n.res.Utf8Resources"));
+        assertTrue(manifest.contains("com/joconner/i18n/res/ja/Test.json"));
+        assertEquals(new HashSet<>(Arrays.asList("properties", "json")), manifest.suffixes("com.joconner.i18n.res.Test"));
+    }
+
+    @Test
+    public void coversDefaultOrganization() throws Exception {
+        BundleManifest manifest = new BundleManifest(Arrays.asList("com/example/Foo_fr_CA.properties"));
+        assertTrue(manifest.covers("com.example.Foo"));
+    }
+
+    @Test
+    public void coversOnlyTheBaseNameOfEachResource() throws Exception {
+        BundleManifest manifest = new BundleManifest(Arrays.asList("a/b/Foo.json", "a/b/fr-ca/Bar.json",
+                "a/b/My_Messages.properties", "a/b/Baz_de_CH.properties", "a/b/README.txt"));
+        assertTrue(manifest.covers("a.b.Foo"));
+        assertFalse(manifest.covers("a.Foo"));
+        assertTrue(manifest.covers("a.b.Bar"));
+        assertFalse(manifest.covers("a.b.fr-ca.Bar"));
+        assertFalse(manifest.covers("a.Bar"));
+        assertTrue(manifest.covers("a.b.My_Messages"));
+        assertFalse(manifest.covers("a.b.My"));
+        assertTrue(manifest.covers("a.b.Baz"));
+        assertFalse(manifest.covers("a.b.Baz_de"));
+        assertFalse(manifest.covers("a.b.README"));
+
+        manifest = new BundleManifest(RESOURCES);
+        assertFalse(manifest.covers("com.joconner.i18n.Test"));
+    }
+
+    @Test
+    public void controlAnswersFromManifest() throws Exception {
+        JsonResourceBundleControl control = new JsonResourceBundleControl(true);
+        control.setBundleManifest(new BundleManifest(RESOURCES));
+
+        assertEquals(Arrays.asList("java.properties", "json"), control.getFormats("com.joconner.i18n.res.Test"));
+        assertEquals(Arrays.asList("java.class", "java.properties", "json"), control.getFormats("com.joconner.i18n.res.Other"));
+        assertEquals(Arrays.asList(Locale.JAPANESE, Locale.ROOT),
+                control.getCandidateLocales("com.joconner.i18n.res.Test", Locale.JAPAN));
+        assertEquals(Arrays.asList(Locale.CANADA, Locale.ENGLISH, Locale.ROOT),
+                control.getCandidateLocales("com.joconner.i18n.res.Test", Locale.CANADA));
+        assertNull(control.newBundle("com.joconner.i18n.res.Test", Locale.JAPANESE, "java.properties",
+                getClass().getClassLoader(), false));
+
+        ResourceBundle bundle = ResourceBundle.getBundle("com.joconner.i18n.res.Test", Locale.JAPAN, control);
+        assertEquals("おはようございます！", bundle.getString("GREETING_MORNING"));
+    }
+
+    @Test
+    public void coversLocaleFiles() throws Exception {
+        BundleManifest manifest = new BundleManifest(Arrays.asList("com/example/Foo.locales.json"));
+        assertTrue(manifest.covers("com.example.Foo"));
+        assertFalse(manifest.covers("com.example.Foo.locales"));
+        assertEquals(Collections.singleton("locales.json"), manifest.suffixes("com.example.Foo"));
+
+        JsonResourceBundleControl control = new JsonResourceBundleControl(true);
+        control.setUseLocaleFiles(true);
+        control.setBundleManifest(manifest);
+        assertEquals(Arrays.asList("locales.json"), control.getFormats("com.example.Foo"));
+        assertFalse(control.isUnlisted("com.example.Foo", Locale.FRENCH, "locales.json"));
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.joconner.i18n;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author joconner
+ */
+public class BundlePreloaderTest {
+
+    /**
+     * Counts the bundles that the control creates.
+     */
+    private static class CountingControl extends JsonResourceBundleControl {
+        final AtomicInteger loads = new AtomicInteger();
+
+        CountingControl() {
+            super(true);
+        }
+
+        @Override
+        public ResourceBundle newBundle(String baseName, Locale locale, String format, ClassLoader loader,
+                                        boolean reload)
+                throws IllegalAccessException, InstantiationException, IOException {
+            ResourceBundle bundle = super.newBundle(baseName, locale, format, loader, reload);
+            if (bundle != null) {
+                loads.incrementAndGet();
+            }
+            return bundle;
+        }
+    }
+
+    @Test
+    public void preloadPopulatesBundleCache() throws Exception {
+        CountingControl control = new CountingControl();
+        // A class loader of its own, so that no other test has cached the bundles.
+        URL resources = new URL(getClass().getResource("/com/joconner/i18n/res/Test.properties"), "../../../../");
+        ClassLoader loader = new URLClassLoader(new URL[]{resources}, null);
+        BundlePreloader preloader = new BundlePreloader(control, loader, ForkJoinPool.commonPool());
+        BundlePreloader.Report report = preloader.preload(
+                Arrays.asList("com.joconner.i18n.res.Test", "com.joconner.i18n.res.Missing"),
+                Arrays.asList(Locale.JAPANESE, Locale.CANADA, Locale.FRENCH));
+
+        assertEquals(6, report.getResults().size());
+        assertEquals(3, report.getMissing().size());
+        for (BundlePreloader.Result result : report.getMissing()) {
+            assertEquals("com.joconner.i18n.res.Missing", result.getBaseName());
+        }
+        BundlePreloader.Result japanese = report.getResults().get(0);
+        assertEquals(Locale.JAPANESE, japanese.getBundleLocale());
+        assertFalse(japanese.isFallback());
+        assertTrue(report.getResults().get(2).isFallback());
+
+        int preloaded = control.loads.get();
+        assertTrue(preloaded > 0);
+        ResourceBundle bundle = ResourceBundle.getBundle("com.joconner.i18n.res.Test", Locale.JAPANESE, loader, control);
+        assertEquals("おはようございます！", bundle.getString("GREETING_MORNING"));
+        ResourceBundle.getBundle("com.joconner.i18n.res.Test", Locale.CANADA, loader, control);
+        assertEquals(preloaded, control.loads.get());
+    }
+
+    @Test
+    public void preloadNothing() throws Exception {
+        BundlePreloader preloader = new BundlePreloader(new Utf8ResourceBundleControl(true));
+        BundlePreloader.Report report = preloader.preload(Collections.<String>emptyList(), Collections.singletonList(Locale.ROOT));
+        assertTrue(report.getResults().isEmpty());
+    }
+
+}
@@ -0,0 +1,626 @@
+package com.joconner.i18n;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * BundleStressHarness calls ResourceBundle.getBundle and getString with a JsonResourceBundleControl from
+ * many threads at once, across many base names and locales, while another thread rewrites bundle files
+ * so that the control reloads them. Each run measures the throughput and the latency of a getBundle and
+ * getString pair for one thread count, and checks that the control never loses, duplicates, or
+ * half-builds a bundle:
+ * <ul>
+ * <li>every getBundle returns a bundle of the requested locale whose keys all come from one complete
+ * version of its file,</li>
+ * <li>no thread sees an older version of a bundle after it saw a newer one,</li>
+ * <li>threads that load a bundle at the same moment, cold or after the reloads stopped, get the same
+ * instance, and</li>
+ * <li>every bundle reaches the last version that was written.</li>
+ * </ul>
+ * Every bundle file has the same keys. The value of each key names the file and the version that it came
+ * from, as in "res.Stress3|fr-CA|key7|12", and the "_version" key holds the version of the file. Files
+ * are replaced with an atomic move, so the control never reads a partly written file.
+ * <p>
+ * BundleStressHarnessTest runs short rounds as part of the tests. For a scalability baseline, run main
+ * with name=value arguments, such as
+ * <pre>
+ * java com.joconner.i18n.BundleStressHarness threads=1,2,4,8,16,32,64,128,256 duration=5000 mode=executor
+ * </pre>
+ * The mode is "sync" to reload bundles in the calling threads, "executor" to reload them on a reload
+ * executor, or "cache" to serve them from a BundleCache.
+ *
+ * @author joconner
+ */
+public class BundleStressHarness {
+
+    static final String VERSION_KEY = "_version";
+    private static final int FULL_CHECK_INTERVAL = 64;
+    private static final int MAX_REPORTED_ERRORS = 20;
+    private static final long SETTLE_TIMEOUT_MILLIS = 20000;
+
+    /**
+     * Creates the control of a run. Every run gets a new control, so that runs don't share caches.
+     */
+    public interface ControlFactory {
+        JsonResourceBundleControl newControl() throws IOException;
+    }
+
+    private int baseNames = 8;
+    private List<Locale> locales = defaultLocales();
+    private int keys = 32;
+    private long durationMillis = 1000;
+    private long reloadIntervalMillis = 5;
+    private ControlFactory controlFactory = new ControlFactory() {
+        @Override
+        public JsonResourceBundleControl newControl() {
+            return new JsonResourceBundleControl(true);
+        }
+    };
+
+    static List<Locale> defaultLocales() {
+        List<Locale> locales = new ArrayList<>();
+        for (String tag : new String[]{"und", "en", "en-US", "en-GB", "fr", "fr-CA", "de", "de-CH", "es",
+                "es-MX", "it", "nl", "pt", "pt-BR", "ja", "ko", "ru", "sv"}) {
+            locales.add(Locale.forLanguageTag(tag));
+        }
+        return locales;
+    }
+
+    public void setBaseNames(int baseNames) {
+        this.baseNames = baseNames;
+    }
+
+    /**
+     * Sets the locales of the bundles. Locale.ROOT is always included, so that every locale has its
+     * root bundle as the end of its fallback chain.
+     */
+    public void setLocales(List<Locale> locales) {
+        this.locales = new ArrayList<>(locales);
+        if (!this.locales.contains(Locale.ROOT)) {
+            this.locales.add(0, Locale.ROOT);
+        }
+    }
+
+    public void setKeys(int keys) {
+        this.keys = keys;
+    }
+
+    public void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    /**
+     * Sets the pause between two file rewrites. Pass 0 to run without reloads.
+     */
+    public void setReloadIntervalMillis(long reloadIntervalMillis) {
+        this.reloadIntervalMillis = reloadIntervalMillis;
+    }
+
+    /**
+     * Sets the factory of the controls. The harness turns hot reload on if the run has reloads, and off
+     * at the end of the run.
+     */
+    public void setControlFactory(ControlFactory controlFactory) {
+        this.controlFactory = controlFactory;
+    }
+
+    /**
+     * Runs one round for each thread count, with the files of each round in a new directory under root.
+     */
+    public List<Result> run(Path root, int... threadCounts) throws Exception {
+        List<Result> results = new ArrayList<>();
+        for (int threads : threadCounts) {
+            results.add(new Round(Files.createTempDirectory(root, "stress-" + threads + "-"), threads).run());
+        }
+        return results;
+    }
+
+    /**
+     * Prints a table of results with one line per thread count. Latencies are in microseconds.
+     */
+    public static void report(List<Result> results, PrintStream out) {
+        out.printf("%8s %12s %12s %9s %9s %9s %9s %9s %8s %7s%n", "threads", "ops/s", "ops/s/thread",
+                "p50", "p90", "p99", "p99.9", "max", "reloads", "errors");
+        for (Result result : results) {
+            out.printf("%8d %12.0f %12.0f %9.1f %9.1f %9.1f %9.1f %9.1f %8d %7d%n", result.threads,
+                    result.getThroughput(), result.getThroughput() / result.threads,
+                    micros(result.latencies.percentile(0.5)), micros(result.latencies.percentile(0.9)),
+                    micros(result.latencies.percentile(0.99)), micros(result.latencies.percentile(0.999)),
+                    micros(result.latencies.max()), result.reloads, result.errorCount);
+            for (String error : result.errors) {
+                out.println("    " + error);
+            }
+        }
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1000.0;
+    }
+
+    /**
+     * The measurements and the errors of one round.
+     */
+    public static final class Result {
+        final int threads;
+        final long operations;
+        final long elapsedNanos;
+        final int reloads;
+        final Histogram latencies;
+        final int errorCount;
+        final List<String> errors;
+
+        Result(int threads, long operations, long elapsedNanos, int reloads, Histogram latencies,
+               int errorCount, List<String> errors) {
+            this.threads = threads;
+            this.operations = operations;
+            this.elapsedNanos = elapsedNanos;
+            this.reloads = reloads;
+            this.latencies = latencies;
+            this.errorCount = errorCount;
+            this.errors = errors;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public long getOperations() {
+            return operations;
+        }
+
+        public int getReloads() {
+            return reloads;
+        }
+
+        /**
+         * Returns the getBundle and getString pairs per second of all threads.
+         */
+        public double getThroughput() {
+            return elapsedNanos == 0 ? 0 : operations * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Returns the latency in nanoseconds below which a fraction of the operations completed.
+         */
+        public long getLatency(double fraction) {
+            return latencies.percentile(fraction);
+        }
+
+        /**
+         * Returns the first errors of the round. getErrorCount counts all of them.
+         */
+        public List<String> getErrors() {
+            return errors;
+        }
+
+        public int getErrorCount() {
+            return errorCount;
+        }
+    }
+
+    /**
+     * One run of the harness with one thread count.
+     */
+    private final class Round {
+        private final Path directory;
+        private final int threads;
+        private final String[] names = new String[baseNames];
+        private final Locale[] bundleLocales = locales.toArray(new Locale[locales.size()]);
+        private final String[][] resourceNames;
+        private final int[][] versions;
+        private final AtomicInteger errorCount = new AtomicInteger();
+        private final Queue<String> errors = new ConcurrentLinkedQueue<>();
+        private volatile boolean running = true;
+        private int reloads;
+
+        Round(Path directory, int threads) {
+            this.directory = directory;
+            this.threads = threads;
+            resourceNames = new String[baseNames][bundleLocales.length];
+            versions = new int[baseNames][bundleLocales.length];
+            for (int b = 0; b < baseNames; b++) {
+                names[b] = "res.Stress" + b;
+            }
+        }
+
+        Result run() throws Exception {
+            final JsonResourceBundleControl control = controlFactory.newControl();
+            for (int b = 0; b < baseNames; b++) {
+                for (int l = 0; l < bundleLocales.length; l++) {
+                    resourceNames[b][l] = control.bundleResourceName(names[b], bundleLocales[l], "json");
+                    writeBundle(b, l);
+                }
+            }
+            final ClassLoader loader = new URLClassLoader(new URL[]{directory.toUri().toURL()}, null);
+            control.setHotReload(reloadIntervalMillis > 0);
+            ExecutorService workers = Executors.newFixedThreadPool(threads);
+            try {
+                // Every thread loads every bundle at the same moment, while nothing is cached yet.
+                loadAll(workers, control, loader);
+
+                final CyclicBarrier start = new CyclicBarrier(threads + 1);
+                List<Future<Histogram>> futures = new ArrayList<>();
+                final long[] operations = new long[threads];
+                for (int t = 0; t < threads; t++) {
+                    final int thread = t;
+                    futures.add(workers.submit(new Callable<Histogram>() {
+                        @Override
+                        public Histogram call() throws Exception {
+                            start.await();
+                            return work(thread, operations, control, loader);
+                        }
+                    }));
+                }
+                start.await();
+                long started = System.nanoTime();
+                rewriteFiles();
+                Histogram latencies = new Histogram();
+                for (Future<Histogram> future : futures) {
+                    latencies.add(future.get());
+                }
+                long elapsed = System.nanoTime() - started;
+                long total = 0;
+                for (long count : operations) {
+                    total += count;
+                }
+
+                settle(control, loader);
+                // Once nothing changes anymore, every thread must get the same bundles again.
+                loadAll(workers, control, loader);
+                return new Result(threads, total, elapsed, reloads, latencies, errorCount.get(),
+                        new ArrayList<>(errors));
+            } finally {
+                workers.shutdownNow();
+                control.setHotReload(false);
+                delete(directory);
+            }
+        }
+
+        /**
+         * Rewrites random files until the duration of the round is over, then stops the workers.
+         */
+        private void rewriteFiles() throws Exception {
+            long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+            Random random = new Random();
+            while (System.nanoTime() < end) {
+                if (reloadIntervalMillis > 0) {
+                    int b = random.nextInt(baseNames);
+                    int l = random.nextInt(bundleLocales.length);
+                    versions[b][l]++;
+                    writeBundle(b, l);
+                    reloads++;
+                    Thread.sleep(reloadIntervalMillis);
+                } else {
+                    Thread.sleep(Math.max(1, TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime())));
+                }
+            }
+            running = false;
+        }
+
+        private Histogram work(int thread, long[] operations, JsonResourceBundleControl control,
+                               ClassLoader loader) {
+            Histogram latencies = new Histogram();
+            int[][] seen = new int[baseNames][bundleLocales.length];
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long count = 0;
+            try {
+                while (running) {
+                    int b = random.nextInt(baseNames);
+                    int l = random.nextInt(bundleLocales.length);
+                    String key = "key" + random.nextInt(keys);
+                    long before = System.nanoTime();
+                    ResourceBundle bundle = ResourceBundle.getBundle(names[b], bundleLocales[l], loader, control);
+                    String value = bundle.getString(key);
+                    latencies.record(System.nanoTime() - before);
+                    count++;
+
+                    int version = checkValue(b, l, key, value);
+                    if (version < seen[b][l]) {
+                        error("%s went back from version %d to %d", bundleName(b, l), seen[b][l], version);
+                    }
+                    seen[b][l] = Math.max(seen[b][l], version);
+                    if (count % FULL_CHECK_INTERVAL == 0) {
+                        checkBundle(b, l, bundle);
+                    }
+                }
+            } catch (RuntimeException e) {
+                error("%s", e);
+            }
+            operations[thread] = count;
+            return latencies;
+        }
+
+        /**
+         * Waits until every bundle has the version that was written last.
+         */
+        private void settle(JsonResourceBundleControl control, ClassLoader loader) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + SETTLE_TIMEOUT_MILLIS;
+            for (int b = 0; b < baseNames; b++) {
+                for (int l = 0; l < bundleLocales.length; l++) {
+                    int version = -1;
+                    while (true) {
+                        ResourceBundle bundle = ResourceBundle.getBundle(names[b], bundleLocales[l], loader,
+                                control);
+                        version = checkBundle(b, l, bundle);
+                        if (version == versions[b][l] || System.currentTimeMillis() > deadline) {
+                            break;
+                        }
+                        Thread.sleep(5);
+                    }
+                    if (version != versions[b][l]) {
+                        error("%s was lost: it has version %d instead of %d", bundleName(b, l), version,
+                                versions[b][l]);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Has every thread get every bundle, starting at the same moment, and checks that the threads got
+         * one instance of each bundle.
+         */
+        private void loadAll(ExecutorService workers, final JsonResourceBundleControl control,
+                             final ClassLoader loader) throws Exception {
+            final int bundles = baseNames * bundleLocales.length;
+            final AtomicReferenceArray<ResourceBundle> loaded = new AtomicReferenceArray<>(bundles);
+            final CyclicBarrier start = new CyclicBarrier(threads);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int offset = t;
+                futures.add(workers.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        start.await();
+                        for (int x = 0; x < bundles; x++) {
+                            // Threads start at different bundles, so that each bundle has several first callers.
+                            int index = (x + offset) % bundles;
+                            int b = index / bundleLocales.length;
+                            int l = index % bundleLocales.length;
+                            ResourceBundle bundle = ResourceBundle.getBundle(names[b], bundleLocales[l], loader,
+                                    control);
+                            checkBundle(b, l, bundle);
+                            if (!loaded.compareAndSet(index, null, bundle) && loaded.get(index) != bundle) {
+                                error("%s was loaded more than once", bundleName(b, l));
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    error("%s", e.getCause());
+                }
+            }
+        }
+
+        /**
+         * Checks that a value comes from the file of the requested bundle, and returns its version.
+         */
+        private int checkValue(int b, int l, String key, String value) {
+            String prefix = names[b] + '|' + bundleLocales[l].toLanguageTag() + '|' + key + '|';
+            if (value == null || !value.startsWith(prefix)) {
+                error("%s has %s=%s", bundleName(b, l), key, value);
+                return -1;
+            }
+            try {
+                return Integer.parseInt(value.substring(prefix.length()));
+            } catch (NumberFormatException e) {
+                error("%s has %s=%s", bundleName(b, l), key, value);
+                return -1;
+            }
+        }
+
+        /**
+         * Checks that a bundle has the requested locale and all the keys of one version of its file, and
+         * returns the version.
+         */
+        private int checkBundle(int b, int l, ResourceBundle bundle) {
+            if (!bundleLocales[l].equals(bundle.getLocale())) {
+                error("%s has the locale %s", bundleName(b, l), bundle.getLocale());
+                return -1;
+            }
+            if (bundle.keySet().size() != keys + 1) {
+                error("%s has %d keys instead of %d", bundleName(b, l), bundle.keySet().size(), keys + 1);
+                return -1;
+            }
+            int version = Integer.parseInt(bundle.getString(VERSION_KEY));
+            for (int k = 0; k < keys; k++) {
+                String key = "key" + k;
+                int keyVersion = checkValue(b, l, key, bundle.getString(key));
+                if (keyVersion != version) {
+                    error("%s mixes versions %d and %d", bundleName(b, l), version, keyVersion);
+                    return -1;
+                }
+            }
+            return version;
+        }
+
+        private void writeBundle(int b, int l) throws IOException {
+            StringBuilder json = new StringBuilder("{\n");
+            String prefix = names[b] + '|' + bundleLocales[l].toLanguageTag() + '|';
+            for (int k = 0; k < keys; k++) {
+                json.append("  \"key").append(k).append("\": \"").append(prefix).append("key").append(k)
+                        .append('|').append(versions[b][l]).append("\",\n");
+            }
+            json.append("  \"").append(VERSION_KEY).append("\": \"").append(versions[b][l]).append("\"\n}\n");
+            Path file = directory.resolve(resourceNames[b][l]);
+            Files.createDirectories(file.getParent());
+            // Write outside the watched directories and move the file into place in one step.
+            Path temporary = Files.createTempFile(directory, "bundle", ".tmp");
+            Files.write(temporary, json.toString().getBytes(StandardCharsets.UTF_8));
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        private String bundleName(int b, int l) {
+            return names[b] + '[' + bundleLocales[l].toLanguageTag() + ']';
+        }
+
+        private void error(String format, Object... args) {
+            if (errorCount.incrementAndGet() <= MAX_REPORTED_ERRORS) {
+                errors.add(String.format(format, args));
+            }
+        }
+    }
+
+    /**
+     * Counts latencies in buckets whose width is a sixteenth of their power of two, so percentiles are
+     * accurate to about 6%. A histogram is filled by one thread; add merges the histograms of threads.
+     */
+    static final class Histogram {
+        private static final int SUB_BUCKETS = 16;
+        private final long[] counts = new long[64 * SUB_BUCKETS];
+        private long total;
+        private long max;
+
+        void record(long nanos) {
+            counts[index(Math.max(0, nanos))]++;
+            total++;
+            max = Math.max(max, nanos);
+        }
+
+        void add(Histogram other) {
+            for (int x = 0; x < counts.length; x++) {
+                counts[x] += other.counts[x];
+            }
+            total += other.total;
+            max = Math.max(max, other.max);
+        }
+
+        long count() {
+            return total;
+        }
+
+        long max() {
+            return max;
+        }
+
+        /**
+         * Returns the upper bound of the bucket that holds the given fraction of the values.
+         */
+        long percentile(double fraction) {
+            long rank = (long) Math.ceil(fraction * total);
+            long seen = 0;
+            for (int x = 0; x < counts.length; x++) {
+                seen += counts[x];
+                if (seen >= rank && seen > 0) {
+                    return Math.min(upperBound(x), max);
+                }
+            }
+            return max;
+        }
+
+        private static int index(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int subBucket = (int) (value >>> (exponent - 4)) & (SUB_BUCKETS - 1);
+            return (exponent - 3) * SUB_BUCKETS + subBucket;
+        }
+
+        private static long upperBound(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int exponent = index / SUB_BUCKETS + 3;
+            long subBucket = index % SUB_BUCKETS;
+            return ((SUB_BUCKETS + subBucket + 1) << (exponent - 4)) - 1;
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Runs the harness with name=value arguments: threads (a comma-separated list), duration and
+     * reloadInterval (milliseconds), baseNames, keys, and mode (sync, executor, or cache).
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Arguments are name=value pairs: " + arg);
+            }
+            options.put(arg.substring(0, equals), arg.substring(equals + 1));
+        }
+        BundleStressHarness harness = new BundleStressHarness();
+        harness.setDurationMillis(Long.parseLong(option(options, "duration", "3000")));
+        harness.setReloadIntervalMillis(Long.parseLong(option(options, "reloadInterval", "5")));
+        harness.setBaseNames(Integer.parseInt(option(options, "baseNames", "8")));
+        harness.setKeys(Integer.parseInt(option(options, "keys", "32")));
+        String mode = option(options, "mode", "sync");
+        final ExecutorService reloadExecutor = Executors.newFixedThreadPool(2);
+        if (mode.equals("executor")) {
+            harness.setControlFactory(new ControlFactory() {
+                @Override
+                public JsonResourceBundleControl newControl() {
+                    JsonResourceBundleControl control = new JsonResourceBundleControl(true);
+                    control.setReloadExecutor(reloadExecutor);
+                    return control;
+                }
+            });
+        } else if (mode.equals("cache")) {
+            harness.setControlFactory(new ControlFactory() {
+                @Override
+                public JsonResourceBundleControl newControl() {
+                    JsonResourceBundleControl control = new JsonResourceBundleControl(true);
+                    control.setBundleCache(new BundleCache(Long.MAX_VALUE));
+                    return control;
+                }
+            });
+        } else if (!mode.equals("sync")) {
+            throw new IllegalArgumentException("Unknown mode: " + mode);
+        }
+        String[] counts = option(options, "threads", "1,2,4,8,16,32,64,128,256").split(",");
+        int[] threadCounts = new int[counts.length];
+        for (int x = 0; x < counts.length; x++) {
+            threadCounts[x] = Integer.parseInt(counts[x].trim());
+        }
+
+        Path root = Files.createTempDirectory("bundle-stress");
+        boolean failed = false;
+        try {
+            List<Result> results = harness.run(root, threadCounts);
+            System.out.println("mode=" + mode + ", " + Runtime.getRuntime().availableProcessors() + " processors");
+            report(results, System.out);
+            for (Result result : results) {
+                failed |= result.errorCount > 0;
+            }
+        } finally {
+            reloadExecutor.shutdownNow();
+            delete(root);
+        }
+        System.exit(failed ? 1 : 0);
+    }
+
+    private static String option(Map<String, String> options, String name, String defaultValue) {
+        String value = options.get(name);
+        return value == null ? defaultValue : value;
+    }
+}
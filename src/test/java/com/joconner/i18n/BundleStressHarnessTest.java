@@ -0,0 +1,100 @@
+package com.joconner.i18n;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Short rounds of the BundleStressHarness. Set the system property stress.report to true to print the
+ * report of each round. Run BundleStressHarness.main for longer rounds and more threads.
+ *
+ * @author joconner
+ */
+public class BundleStressHarnessTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private BundleStressHarness harness;
+    private ExecutorService reloadExecutor;
+
+    @Before
+    public void setUp() {
+        harness = new BundleStressHarness();
+        harness.setBaseNames(4);
+        harness.setKeys(16);
+        harness.setDurationMillis(300);
+        harness.setReloadIntervalMillis(2);
+        reloadExecutor = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void tearDown() {
+        reloadExecutor.shutdownNow();
+    }
+
+    private void assertNoErrors(List<BundleStressHarness.Result> results) {
+        if (Boolean.getBoolean("stress.report")) {
+            BundleStressHarness.report(results, System.out);
+        }
+        for (BundleStressHarness.Result result : results) {
+            assertEquals(result.getErrors().toString(), 0, result.getErrorCount());
+            assertTrue(result.getOperations() > 0);
+            assertTrue(result.getReloads() > 0);
+            assertTrue(result.getLatency(0.5) <= result.getLatency(0.99));
+        }
+    }
+
+    @Test
+    public void reloadInCallingThreads() throws Exception {
+        assertNoErrors(harness.run(folder.getRoot().toPath(), 1, 4, 32));
+    }
+
+    @Test
+    public void reloadOnExecutor() throws Exception {
+        harness.setControlFactory(new BundleStressHarness.ControlFactory() {
+            @Override
+            public JsonResourceBundleControl newControl() {
+                JsonResourceBundleControl control = new JsonResourceBundleControl(true);
+                control.setReloadExecutor(reloadExecutor);
+                control.setFlattenFallbacks(true);
+                return control;
+            }
+        });
+        assertNoErrors(harness.run(folder.getRoot().toPath(), 1, 4, 32));
+    }
+
+    @Test
+    public void bundleCache() throws Exception {
+        harness.setControlFactory(new BundleStressHarness.ControlFactory() {
+            @Override
+            public JsonResourceBundleControl newControl() {
+                JsonResourceBundleControl control = new JsonResourceBundleControl(true);
+                control.setBundleCache(new BundleCache(Long.MAX_VALUE));
+                return control;
+            }
+        });
+        assertNoErrors(harness.run(folder.getRoot().toPath(), 1, 4, 32));
+    }
+
+    @Test
+    public void histogramPercentiles() {
+        BundleStressHarness.Histogram histogram = new BundleStressHarness.Histogram();
+        for (long x = 1; x <= 1000; x++) {
+            histogram.record(x * 1000);
+        }
+        assertEquals(1000, histogram.count());
+        assertEquals(1000000, histogram.max());
+        assertEquals(500000, histogram.percentile(0.5), 500000 / 16);
+        assertEquals(990000, histogram.percentile(0.99), 990000 / 16);
+        assertEquals(1000000, histogram.percentile(1.0));
+    }
+}
@@ -0,0 +1,141 @@
+package com.joconner.i18n;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author joconner
+ */
+public class CompiledResourceBundleTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void handleGetObject() throws Exception {
+        Map<String, String> entries = new HashMap<>();
+        entries.put("GREETING_MORNING", "おはようございます！");
+        entries.put("GREETING_NIGHT", "こんばんは！");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BundleCompiler.compile(entries, out);
+
+        CompiledResourceBundle bundle = new CompiledResourceBundle(ByteBuffer.wrap(out.toByteArray()));
+        assertEquals("おはようございます！", bundle.handleGetObject("GREETING_MORNING"));
+        assertEquals("こんばんは！", bundle.handleGetObject("GREETING_NIGHT"));
+        assertNull(bundle.handleGetObject("GREETING_NOON"));
+        assertEquals(entries.keySet(), bundle.handleKeySet());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFormats() throws Exception {
+        new CompiledResourceBundle(ByteBuffer.wrap("{}".getBytes("UTF-8")));
+    }
+
+    @Test
+    public void getBundleFromCompiledFiles() throws Exception {
+        Path target = folder.getRoot().toPath();
+        Path source = Paths.get(getClass().getResource("/com/joconner/i18n/res/Test.properties").toURI())
+                .getParent().getParent().getParent().getParent().getParent();
+        assertTrue(BundleCompiler.compileTree(source, target) > 0);
+        assertFalse(Files.exists(target.resolve("com/joconner/i18n/res/Greetings.locales.erb")));
+
+        JsonResourceBundleControl control = new JsonResourceBundleControl(true);
+        control.setUseCompiledBundles(true);
+        ClassLoader loader = new URLClassLoader(new URL[]{target.toUri().toURL()}, null);
+        ResourceBundle bundle = ResourceBundle.getBundle("com.joconner.i18n.res.Test", Locale.JAPANESE, loader, control);
+        assertTrue(bundle instanceof CompiledResourceBundle);
+        assertEquals("おはようございます！", bundle.getString("GREETING_MORNING"));
+        assertEquals("Good afternoon!", bundle.getString("GREETING_NOON"));
+        assertEquals(3, Collections.list(bundle.getKeys()).size());
+    }
+
+    private static byte[] compiled() throws IOException {
+        Map<String, String> entries = new HashMap<>();
+        entries.put("GREETING_MORNING", "Good morning!");
+        entries.put("GREETING_NIGHT", "Good night!");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BundleCompiler.compile(entries, out);
+        return out.toByteArray();
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedBundle() throws Exception {
+        byte[] bytes = compiled();
+        new CompiledResourceBundle(ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length - 1)));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedIndex() throws Exception {
+        new CompiledResourceBundle(ByteBuffer.wrap(Arrays.copyOf(compiled(), 20)));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOffsetOutsideBundle() throws Exception {
+        ByteBuffer buffer = ByteBuffer.wrap(compiled());
+        // The value offset of the first entry.
+        buffer.putInt(CompiledResourceBundle.HEADER_SIZE + 8, Integer.MAX_VALUE);
+        new CompiledResourceBundle(buffer);
+    }
+
+    @Test
+    public void compileTreeSkipsFilesThatAreNotBundles() throws Exception {
+        Path source = folder.newFolder("source").toPath();
+        Path target = folder.newFolder("target").toPath();
+        Files.write(source.resolve("schema.json"), new byte[0]);
+        Files.createDirectories(source.resolve("res"));
+        Files.write(source.resolve("res/Foo.json"), "{\"GREETING\": \"Hello!\"}".getBytes(StandardCharsets.UTF_8));
+        ByteArrayOutputStream warnings = new ByteArrayOutputStream();
+
+        assertEquals(1, BundleCompiler.compileTree(source, target, new PrintStream(warnings, true, "UTF-8")));
+        assertTrue(Files.exists(target.resolve("res/Foo.erb")));
+        assertFalse(Files.exists(target.resolve("schema.erb")));
+        assertTrue(warnings.toString("UTF-8").contains("schema.json"));
+    }
+
+    @Test
+    public void recompilingKeepsMappedBundlesReadable() throws Exception {
+        Path source = folder.newFolder("source").toPath();
+        Path target = folder.newFolder("target").toPath();
+        Path json = source.resolve("res/Foo.json");
+        Files.createDirectories(json.getParent());
+        StringBuilder value = new StringBuilder();
+        for (int x = 0; x < 4096; x++) {
+            value.append('x');
+        }
+        Files.write(json, ("{\"GREETING\": \"Hello!\", \"LONG\": \"" + value + "\"}")
+                .getBytes(StandardCharsets.UTF_8));
+        assertEquals(1, BundleCompiler.compileTree(source, target));
+        DirectoryResourceSource resources = new DirectoryResourceSource(target);
+        CompiledResourceBundle mapped = new CompiledResourceBundle(resources.map("res/Foo.erb", null));
+
+        // The new bundle is much shorter than the mapped one.
+        Files.write(json, "{\"GREETING\": \"Hi!\"}".getBytes(StandardCharsets.UTF_8));
+        assertEquals(1, BundleCompiler.compileTree(source, target));
+        assertEquals(value.toString(), mapped.handleGetObject("LONG"));
+        assertEquals("Hello!", mapped.handleGetObject("GREETING"));
+        CompiledResourceBundle recompiled = new CompiledResourceBundle(resources.map("res/Foo.erb", null));
+        assertEquals("Hi!", recompiled.handleGetObject("GREETING"));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(target.resolve("res"))) {
+            for (Path file : files) {
+                assertEquals("Foo.erb", file.getFileName().toString());
+            }
+        }
+    }
+
+}
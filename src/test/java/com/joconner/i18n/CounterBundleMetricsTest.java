@@ -0,0 +1,89 @@
+package com.joconner.i18n;
+
+import org.junit.Test;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author joconner
+ */
+public class CounterBundleMetricsTest {
+
+    private ClassLoader newLoader() throws Exception {
+        URL bundle = getClass().getResource("/com/joconner/i18n/res/Test.properties");
+        URL resources = new URL(bundle, "../../../../");
+        return new URLClassLoader(new URL[]{resources}, null);
+    }
+
+    @Test
+    public void recordsLoadsAndMissingKeys() throws Exception {
+        CounterBundleMetrics metrics = new CounterBundleMetrics();
+        JsonResourceBundleControl control = new JsonResourceBundleControl(true);
+        control.setMetrics(metrics);
+
+        ResourceBundle bundle = ResourceBundle.getBundle("com.joconner.i18n.res.Test", Locale.JAPANESE, newLoader(), control);
+        assertEquals("Good afternoon!", bundle.getString("GREETING_NOON"));
+
+        CounterBundleMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(2, snapshot.getLoadCount());
+        assertEquals(0, snapshot.getMissingKeys());
+        assertEquals(2, snapshot.getCacheMisses());
+        assertEquals(0, snapshot.getReloads());
+        try {
+            bundle.getString("GREETING_NONE");
+            fail();
+        } catch (MissingResourceException e) {
+            assertEquals(1, metrics.snapshot().getMissingKeys());
+        }
+
+        Map<Locale, CounterBundleMetrics.LoadStatistics> jsonLoads = snapshot.getLoads().get("json");
+        assertEquals(1, jsonLoads.get(Locale.JAPANESE).getCount());
+        assertTrue(jsonLoads.get(Locale.JAPANESE).getBytes() > 0);
+        assertEquals(1, snapshot.getLoads().get("java.properties").get(Locale.ROOT).getCount());
+    }
+
+    @Test
+    public void recordsBytesOfLocaleFiles() throws Exception {
+        CounterBundleMetrics metrics = new CounterBundleMetrics();
+        JsonResourceBundleControl control = new JsonResourceBundleControl(true);
+        control.setUseLocaleFiles(true);
+        control.setMetrics(metrics);
+        ClassLoader loader = newLoader();
+        long size = getClass().getResource("/com/joconner/i18n/res/Greetings.locales.json").openConnection()
+                .getContentLengthLong();
+
+        ResourceBundle.getBundle("com.joconner.i18n.res.Greetings", Locale.FRENCH, loader, control);
+        Map<Locale, CounterBundleMetrics.LoadStatistics> loads =
+                metrics.snapshot().getLoads().get(JsonResourceBundleControl.FORMAT_JSON_LOCALES);
+        // The first bundle reads the file; the root bundle comes from the file that was read.
+        assertEquals(2, loads.size());
+        long bytes = 0;
+        for (CounterBundleMetrics.LoadStatistics statistics : loads.values()) {
+            bytes += statistics.getBytes();
+        }
+        assertEquals(size, bytes);
+    }
+
+    @Test
+    public void emptySnapshot() throws Exception {
+        CounterBundleMetrics.Snapshot snapshot = new CounterBundleMetrics().snapshot();
+        assertEquals(0, snapshot.getLoadCount());
+        assertEquals(0, snapshot.getCacheHits());
+        assertTrue(snapshot.getLoads().isEmpty());
+    }
+
+    @Test
+    public void nullMetricsMeansNone() throws Exception {
+        JsonResourceBundleControl control = new JsonResourceBundleControl(true);
+        control.setMetrics(null);
+        assertSame(BundleMetrics.NONE, control.getMetrics());
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.joconner.i18n;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.ResourceBundle;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author joconner
+ */
+public class DirectoryResourceSourceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path writeBundle(String resourceName, String content) throws Exception {
+        Path file = folder.getRoot().toPath().resolve(resourceName);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    public void readsFiles() throws Exception {
+        Path file = writeBundle("res/Foo.json", "{\"key\": \"value\"}");
+        DirectoryResourceSource source = new DirectoryResourceSource(folder.getRoot().toPath());
+        try (InputStream stream = source.open("res/Foo.json", null)) {
+            assertNotNull(stream);
+        }
+        ByteBuffer buffer = source.map("res/Foo.json", null);
+        assertEquals(Files.size(file), buffer.remaining());
+        ResourceSource.Version version = source.version("res/Foo.json", null);
+        assertEquals(Files.size(file), version.getSize());
+        assertEquals(Files.getLastModifiedTime(file).toMillis(), version.getLastModified());
+
+        assertNull(source.open("res/Bar.json", null));
+        assertNull(source.map("res/Bar.json", null));
+        assertNull(source.version("res/Bar.json", null));
+        assertNull(source.version("res", null));
+    }
+
+    @Test
+    public void resourceNamesDontLeaveTheDirectory() throws Exception {
+        writeBundle("Secret.json", "{}");
+        DirectoryResourceSource source = new DirectoryResourceSource(folder.getRoot().toPath().resolve("res"));
+        assertNull(source.open("../Secret.json", null));
+        assertNull(source.version("../Secret.json", null));
+    }
+
+    @Test
+    public void controlReadsBundlesFromTheDirectory() throws Exception {
+        writeBundle("res/Foo.properties", "GREETING_NIGHT=Good evening!\nGREETING_MORNING=Good morning!\n");
+        writeBundle("res/fr/Foo.json", "{\"GREETING_MORNING\": \"Bonjour !\"}");
+        ClassLoader loader = new URLClassLoader(new URL[0], null);
+        JsonResourceBundleControl control = new JsonResourceBundleControl(true);
+        control.setResourceSource(new DirectoryResourceSource(folder.getRoot().toPath()));
+
+        ResourceBundle bundle = ResourceBundle.getBundle("res.Foo", Locale.FRENCH, loader, control);
+        assertTrue(bundle instanceof JsonResourceBundle);
+        assertEquals("Bonjour !", bundle.getString("GREETING_MORNING"));
+        assertEquals("Good evening!", bundle.getString("GREETING_NIGHT"));
+    }
+
+    @Test
+    public void hotReloadComparesVersions() throws Exception {
+        writeBundle("res/Hot.json", "{\"GREETING_MORNING\": \"Good morning!\"}");
+        Path japanese = writeBundle("res/ja/Hot.json", "{\"GREETING_MORNING\": \"おはよう\"}");
+        ClassLoader loader = new URLClassLoader(new URL[0], null);
+        JsonResourceBundleControl control = new JsonResourceBundleControl(true);
+        control.setResourceSource(new DirectoryResourceSource(folder.getRoot().toPath()));
+        control.setHotReload(true);
+        try {
+            ResourceBundle bundle = ResourceBundle.getBundle("res.Hot", Locale.JAPANESE, loader, control);
+            assertEquals("おはよう", bundle.getString("GREETING_MORNING"));
+            assertSame(bundle, ResourceBundle.getBundle("res.Hot", Locale.JAPANESE, loader, control));
+
+            Files.write(japanese, "{\"GREETING_MORNING\": \"おはようございます！\"}".getBytes(StandardCharsets.UTF_8));
+            ResourceBundle reloaded = ResourceBundle.getBundle("res.Hot", Locale.JAPANESE, loader, control);
+            assertNotSame(bundle, reloaded);
+            assertEquals("おはようございます！", reloaded.getString("GREETING_MORNING"));
+            assertSame(reloaded, ResourceBundle.getBundle("res.Hot", Locale.JAPANESE, loader, control));
+        } finally {
+            control.setHotReload(false);
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.joconner.i18n;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author joconner
+ */
+public class JsonBundleParserTest {
+
+    private StringTable parse(String json, MetadataIndex.Builder metadata) throws IOException {
+        StringTable.Builder values = new StringTable.Builder();
+        new JsonBundleParser(new StringReader(json)).parse(values, metadata);
+        return values.build();
+    }
+
+    @Test
+    public void parsesStringAndObjectValues() throws Exception {
+        MetadataIndex.Builder metadata = new MetadataIndex.Builder();
+        StringTable table = parse("{\n  \"key1\": \"Hello world!\",\n  \"key2\": {\"value\": \"Good evening!\", "
+                + "\"@meta\": {\"maxLength\": 25, \"tone\": \"casual\", \"notes\": [\"a\", {\"b\": null}]}}\n}\n", metadata);
+        assertEquals(2, table.size());
+        assertEquals("Hello world!", table.get("key1"));
+        assertEquals("Good evening!", table.get("key2"));
+        MetadataIndex index = metadata.build();
+        assertEquals(1, index.size());
+        assertEquals("casual", index.get("key2").getString("tone", null));
+        assertEquals(2, index.get("key2").get("notes").asArray().size());
+    }
+
+    @Test
+    public void decodesEscapes() throws Exception {
+        StringTable table = parse("{\"key\": \"\\\"quoted\\\" \\\\ \\/ \\n\\t\\u00e9\\u672C\"}", new MetadataIndex.Builder());
+        assertEquals("\"quoted\" \\ / \n\té本", table.get("key"));
+    }
+
+    @Test
+    public void skipsValuesThatAreNotStrings() throws Exception {
+        StringTable table = parse("{\"number\": -1.5e3, \"flag\": true, \"nothing\": null, \"list\": [1, [2], {\"x\": \"]\"}],"
+                + " \"noValue\": {\"other\": \"x\"}, \"key\": \"value\"}", new MetadataIndex.Builder());
+        assertEquals(1, table.size());
+        assertEquals("value", table.get("key"));
+    }
+
+    @Test
+    public void lastDuplicateKeyWins() throws Exception {
+        StringTable table = parse("{\"key\": \"first\", \"key\": \"second\"}", new MetadataIndex.Builder());
+        assertEquals(1, table.size());
+        assertEquals("second", table.get("key"));
+    }
+
+    @Test
+    public void nestedKeys() throws Exception {
+        String json = "{\"title\": \"Settings\", \"settings\": {\"value\": \"All settings\", "
+                + "\"@meta\": {\"tone\": \"formal\"}, \"privacy\": {\"title\": \"Privacy\", \"count\": 3, "
+                + "\"tracking\": {\"value\": \"Tracking\", \"@meta\": {\"maxLength\": 12}}}, \"empty\": {}}}";
+        StringTable.Builder values = new StringTable.Builder();
+        MetadataIndex.Builder metadata = new MetadataIndex.Builder();
+        new JsonBundleParser(new StringReader(json), true).parse(values, metadata);
+        StringTable table = values.build();
+        assertEquals(4, table.size());
+        assertEquals("Settings", table.get("title"));
+        assertEquals("All settings", table.get("settings"));
+        assertEquals("Privacy", table.get("settings.privacy.title"));
+        assertEquals("Tracking", table.get("settings.privacy.tracking"));
+        MetadataIndex index = metadata.build();
+        assertEquals("formal", index.get("settings").getString("tone", null));
+        assertEquals(12, index.get("settings.privacy.tracking").getInt("maxLength", 0));
+
+        StringTable flat = parse(json, new MetadataIndex.Builder());
+        assertEquals(2, flat.size());
+        assertNull(flat.get("settings.privacy.title"));
+    }
+
+    @Test
+    public void emptyBundle() throws Exception {
+        assertEquals(0, parse(" { } ", new MetadataIndex.Builder()).size());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsArrays() throws Exception {
+        parse("[\"key\"]", new MetadataIndex.Builder());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsUnterminatedObject() throws Exception {
+        parse("{\"key\": \"value\"", new MetadataIndex.Builder());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTrailingText() throws Exception {
+        parse("{\"key\": \"value\"} x", new MetadataIndex.Builder());
+    }
+
+}
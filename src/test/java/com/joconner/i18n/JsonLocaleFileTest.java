@@ -0,0 +1,65 @@
+package com.joconner.i18n;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author joconner
+ */
+public class JsonLocaleFileTest {
+
+    private static JsonLocaleFile read(String json) throws IOException {
+        return JsonLocaleFile.read(new StringReader(json), null, false, 0);
+    }
+
+    @Test
+    public void readsEveryLocale() throws Exception {
+        JsonLocaleFile file = read("{\"und\": {\"key\": \"root\"}, \"fr\": {\"key\": \"fr\"}, "
+                + "\"zh-Hant-TW\": {\"key\": {\"value\": \"tw\", \"@meta\": {\"tone\": \"formal\"}}}}");
+        assertEquals(new HashSet<>(Arrays.asList(Locale.ROOT, Locale.FRENCH, Locale.forLanguageTag("zh-Hant-TW"))),
+                file.getLocales());
+        assertEquals("root", file.newBundle(Locale.ROOT).getString("key"));
+        assertEquals("fr", file.newBundle(Locale.FRENCH).getString("key"));
+        JsonResourceBundle taiwan = file.newBundle(Locale.forLanguageTag("zh-Hant-TW"));
+        assertEquals("tw", taiwan.getString("key"));
+        assertEquals("formal", taiwan.getMetadata("key").getString("tone", null));
+        assertNull(file.newBundle(Locale.GERMAN));
+    }
+
+    @Test
+    public void rootTag() throws Exception {
+        assertEquals("value", read("{\"root\": {\"key\": \"value\"}}").newBundle(Locale.ROOT).getString("key"));
+    }
+
+    @Test
+    public void bundlesShareTheTableOfTheirLocale() throws Exception {
+        JsonLocaleFile file = read("{\"fr\": {\"key\": \"value\"}}");
+        JsonResourceBundle first = file.newBundle(Locale.FRENCH);
+        JsonResourceBundle second = file.newBundle(Locale.FRENCH);
+        assertNotSame(first, second);
+        assertSame(first.table(), second.table());
+    }
+
+    @Test
+    public void emptyFile() throws Exception {
+        assertTrue(read(" { } ").getLocales().isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsInvalidTags() throws Exception {
+        read("{\"fr_CA\": {\"key\": \"value\"}}");
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsLocalesThatAreNotObjects() throws Exception {
+        read("{\"fr\": \"value\"}");
+    }
+
+}
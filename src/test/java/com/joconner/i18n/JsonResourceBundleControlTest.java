@@ -23,6 +23,14 @@ public class JsonResourceBundleControlTest {
         assertEquals(expectedFormats, supportedFormats);
     }
 
+    @Test
+    public void getFormatsWithCompiledBundles() throws Exception {
+        JsonResourceBundleControl control = new JsonResourceBundleControl(true);
+        control.setUseCompiledBundles(true);
+        List<String> expectedFormats = Arrays.asList("erb", "java.class", "java.properties", "json");
+        assertEquals(expectedFormats, control.getFormats("foo"));
+    }
+
     @Test
     public void toBundleName() throws Exception {
         Locale[] locales = {Locale.CHINA, Locale.forLanguageTag("en-US-Windows")};
@@ -114,4 +122,70 @@ public class JsonResourceBundleControlTest {
         assertTrue(bundle instanceof JsonResourceBundle);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void getFormatsWithLocaleFiles() throws Exception {
+        JsonResourceBundleControl control = new JsonResourceBundleControl(true);
+        control.setUseLocaleFiles(true);
+        assertEquals(Arrays.asList("locales.json", "java.class", "java.properties", "json"), control.getFormats("foo"));
+        control.setUseCompiledBundles(true);
+        assertEquals(Arrays.asList("erb", "locales.json", "java.class", "java.properties", "json"),
+                control.getFormats("foo"));
+    }
+
+    @Test
+    public void getBundleFromLocaleFile() throws Exception {
+        JsonResourceBundleControl control = new JsonResourceBundleControl(true);
+        control.setUseLocaleFiles(true);
+        ResourceBundle bundle = ResourceBundle.getBundle("com.joconner.i18n.res.Greetings", Locale.CANADA_FRENCH, control);
+        assertTrue(bundle instanceof JsonResourceBundle);
+        assertEquals(Locale.CANADA_FRENCH, bundle.getLocale());
+        assertEquals("Allô !", bundle.getString("GREETING_MORNING"));
+        assertEquals("Bonsoir !", bundle.getString("GREETING_NIGHT"));
+        assertEquals("Goodbye!", bundle.getString("FAREWELL"));
+        assertEquals("casual", ((JsonResourceBundle) bundle).getMetadata("GREETING_MORNING").getString("tone", null));
+
+        ResourceBundle japanese = ResourceBundle.getBundle("com.joconner.i18n.res.Greetings", Locale.JAPANESE, control);
+        assertEquals(Locale.ROOT, japanese.getLocale());
+        assertEquals("Good morning!", japanese.getString("GREETING_MORNING"));
+    }
+
+    @Test
+    public void localeFileIsReadOnce() throws Exception {
+        JsonResourceBundleControl control = new JsonResourceBundleControl(true);
+        control.setUseLocaleFiles(true);
+        ClassLoader loader = getClass().getClassLoader();
+        JsonResourceBundle french = (JsonResourceBundle) control.newBundle("com.joconner.i18n.res.Greetings",
+                Locale.FRENCH, "locales.json", loader, false);
+        JsonResourceBundle again = (JsonResourceBundle) control.newBundle("com.joconner.i18n.res.Greetings",
+                Locale.FRENCH, "locales.json", loader, false);
+        assertNotSame(french, again);
+        assertSame(french.table(), again.table());
+        assertNull(control.newBundle("com.joconner.i18n.res.Greetings", Locale.GERMAN, "locales.json", loader, false));
+        assertNull(control.newBundle("com.joconner.i18n.res.Test", Locale.ROOT, "locales.json", loader, false));
+    }
+
+    @Test
+    public void nestedKeysInLocaleFile() throws Exception {
+        JsonResourceBundleControl control = new JsonResourceBundleControl(true);
+        control.setUseLocaleFiles(true);
+        control.setNestedKeys(true);
+        ResourceBundle bundle = control.newBundle("com.joconner.i18n.res.Greetings", Locale.CANADA_FRENCH,
+                "locales.json", getClass().getClassLoader(), false);
+        assertEquals("Allô !", bundle.getString("GREETING_MORNING"));
+        assertEquals("casual", ((JsonResourceBundle) bundle).getMetadata("GREETING_MORNING").getString("tone", null));
+        assertFalse(bundle.containsKey("GREETING_MORNING.@meta"));
+    }
+
+    @Test
+    public void nestedKeysSkipCompiledBundles() throws Exception {
+        JsonResourceBundleControl control = new JsonResourceBundleControl(true);
+        control.setUseCompiledBundles(true);
+        assertEquals("erb", control.getFormats("com.joconner.i18n.res.Test").get(0));
+        control.setNestedKeys(true);
+        assertFalse(control.getFormats("com.joconner.i18n.res.Test").contains("erb"));
+        control.setUseLocaleFiles(true);
+        assertEquals("locales.json", control.getFormats("com.joconner.i18n.res.Test").get(0));
+        assertFalse(control.getFormats("com.joconner.i18n.res.Test").contains("erb"));
+    }
+
+}
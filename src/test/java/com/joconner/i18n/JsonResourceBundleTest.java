@@ -1,7 +1,10 @@
 package com.joconner.i18n;
 
+import com.eclipsesource.json.JsonObject;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.io.StringReader;
 import java.util.*;
 
 import static org.junit.Assert.*;
@@ -50,6 +53,40 @@ public class JsonResourceBundleTest {
         assertEquals(3, keyList.size());
     }
 
+    @Test
+    public void getKeysWithoutParent() throws Exception {
+        JsonResourceBundle jsonBundle = new JsonResourceBundle(new StringReader("{\"GREETING_MORNING\": \"Good morning!\"}"));
+        Enumeration<String> keys = jsonBundle.getKeys();
+        assertTrue(keys.hasMoreElements());
+        assertEquals("GREETING_MORNING", keys.nextElement());
+        assertFalse(keys.hasMoreElements());
+    }
+
+    @Test
+    public void handleKeySetContainsOwnKeysOnly() throws Exception {
+        ResourceBundle bundle = ResourceBundle.getBundle("com.joconner.i18n.res.Test", Locale.JAPANESE, new JsonResourceBundleControl(true));
+        assertTrue(bundle instanceof JsonResourceBundle);
+        JsonResourceBundle jsonBundle = (JsonResourceBundle) bundle;
+
+        Set<String> keys = jsonBundle.handleKeySet();
+        assertEquals(new HashSet<>(Arrays.asList("GREETING_MORNING", "GREETING_NIGHT")), keys);
+        assertEquals(3, jsonBundle.keySet().size());
+    }
+
+    @Test
+    public void getMetadata() throws Exception {
+        String json = "{\"GREETING_MORNING\": {\"value\": \"Good morning!\", \"@meta\": {\"maxLength\": 25, \"tone\": \"casual\"}},"
+                + " \"GREETING_NIGHT\": \"Good evening!\"}";
+        JsonResourceBundle jsonBundle = new JsonResourceBundle(new StringReader(json));
+        JsonObject metadata = jsonBundle.getMetadata("GREETING_MORNING");
+        assertNotNull(metadata);
+        assertEquals(25, metadata.getInt("maxLength", 0));
+        assertEquals("casual", metadata.getString("tone", null));
+        assertSame(metadata, jsonBundle.getMetadata("GREETING_MORNING"));
+        assertNull(jsonBundle.getMetadata("GREETING_NIGHT"));
+        assertNull(jsonBundle.getMetadata("GREETING_NOON"));
+    }
+
     @Test
     public void getString() throws Exception {
         ResourceBundle bundle = ResourceBundle.getBundle("com.joconner.i18n.res.Test", Locale.JAPANESE, new JsonResourceBundleControl(true));
@@ -63,5 +100,130 @@ public class JsonResourceBundleTest {
 
     }
 
+    @Test
+    public void flattenedLookup() throws Exception {
+        ChainedBundle root = new ChainedBundle("{\"A\": \"root a\", \"B\": \"root b\", \"C\": \"root c\"}");
+        ChainedBundle fr = new ChainedBundle("{\"B\": \"fr b\"}");
+        ChainedBundle frCa = new ChainedBundle("{\"A\": \"fr-ca a\"}");
+        fr.chainTo(root);
+        frCa.chainTo(fr);
+        frCa.flattenParents = true;
+        fr.flattenParents = true;
+
+        assertEquals("fr-ca a", frCa.handleGetObject("A"));
+        assertEquals("fr b", frCa.handleGetObject("B"));
+        assertEquals("root c", frCa.handleGetObject("C"));
+        assertNull(frCa.handleGetObject("D"));
+        assertSame(frCa.flattenedTable(), frCa.flattenedTable());
+
+        ChainedBundle otherRoot = new ChainedBundle("{\"C\": \"other c\"}");
+        fr.chainTo(otherRoot);
+        assertEquals("other c", fr.handleGetObject("C"));
+        assertEquals("other c", frCa.handleGetObject("C"));
+        assertEquals("fr b", frCa.handleGetObject("B"));
+
+        ChainedBundle frReloaded = new ChainedBundle("{\"B\": \"fr b reloaded\"}");
+        frCa.chainTo(frReloaded);
+        assertEquals("fr b reloaded", frCa.handleGetObject("B"));
+        assertNull(frCa.handleGetObject("C"));
+    }
+
+    @Test
+    public void getValuesWithPrefix() throws Exception {
+        ChainedBundle root = new ChainedBundle("{\"menu\": {\"file\": {\"open\": \"Open\", \"close\": \"Close\"}, "
+                + "\"edit\": {\"copy\": \"Copy\"}}, \"menuless\": \"x\", \"title\": \"Title\"}", true);
+        ChainedBundle fr = new ChainedBundle("{\"menu\": {\"file\": {\"open\": \"Ouvrir\", \"save\": \"Enregistrer\"}}}", true);
+        fr.chainTo(root);
+
+        Map<String, String> file = fr.getValuesWithPrefix("menu.file.");
+        assertEquals(Arrays.asList("menu.file.close", "menu.file.open", "menu.file.save"), new ArrayList<>(file.keySet()));
+        assertEquals(Arrays.asList("Close", "Ouvrir", "Enregistrer"), new ArrayList<>(file.values()));
+        assertEquals("Ouvrir", file.get("menu.file.open"));
+        assertNull(file.get("menu.edit.copy"));
+        assertEquals(4, fr.getValuesWithPrefix("menu.").size());
+        assertEquals(5, fr.getValuesWithPrefix("menu").size());
+        assertEquals(6, fr.getValuesWithPrefix("").size());
+        assertTrue(fr.getValuesWithPrefix("nothing").isEmpty());
+        assertEquals(Collections.singletonMap("menu.edit.copy", "Copy"), root.getValuesWithPrefix("menu.edit"));
+
+        ChainedBundle otherRoot = new ChainedBundle("{\"menu\": {\"file\": {\"print\": \"Print\"}}}", true);
+        fr.chainTo(otherRoot);
+        assertEquals(Arrays.asList("menu.file.open", "menu.file.print", "menu.file.save"),
+                new ArrayList<>(fr.getValuesWithPrefix("menu.file.").keySet()));
+    }
+
+    @Test
+    public void resolve() throws Exception {
+        final ResourceBundle list = new ListResourceBundle() {
+            @Override
+            protected Object[][] getContents() {
+                return new Object[][]{{"D", "list d"}, {"E", 42}};
+            }
+        };
+        ChainedBundle root = new ChainedBundle("{\"A\": \"root a\", \"B\": \"root b\", \"C\": \"root c\"}");
+        ChainedBundle fr = new ChainedBundle("{\"B\": \"fr b\"}");
+        ChainedBundle frCa = new ChainedBundle("{\"A\": \"fr-ca a\"}");
+        root.chainTo(list);
+        fr.chainTo(root);
+        frCa.chainTo(fr);
+
+        String[] keys = {"A", "B", "C", "D", "E", "F", "A"};
+        String[] values = new String[keys.length + 1];
+        values[5] = "stale";
+        assertEquals(2, frCa.resolve(keys, values));
+        assertArrayEquals(new String[]{"fr-ca a", "fr b", "root c", "list d", null, null, "fr-ca a", null}, values);
+
+        frCa.flattenParents = true;
+        fr.flattenParents = true;
+        Arrays.fill(values, "stale");
+        assertEquals(2, frCa.resolve(keys, values));
+        assertArrayEquals(new String[]{"fr-ca a", "fr b", "root c", "list d", null, null, "fr-ca a", "stale"}, values);
+        assertEquals(0, frCa.resolve(new String[0], new String[0]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void resolveRejectsShortValues() throws Exception {
+        new ChainedBundle("{}").resolve(new String[]{"A", "B"}, new String[1]);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void resolveRejectsNullKeys() throws Exception {
+        new ChainedBundle("{}").resolve(new String[]{"A", null}, new String[2]);
+    }
+
+    @Test
+    public void format() throws Exception {
+        ChainedBundle root = new ChainedBundle("{\"FILES\": \"{0} has {1,choice,0#no files|1#one file|1<{1,number,integer} files}.\", "
+                + "\"PLAIN\": \"It''s plain\"}");
+        ChainedBundle fr = new ChainedBundle("{\"FILES\": \"{0} a {1,number,integer} fichiers.\"}");
+        fr.chainTo(root);
+
+        assertEquals("Disk has 1,200 files.", root.format("FILES", "Disk", 1200));
+        assertEquals("It's plain", fr.format("PLAIN"));
+        StringBuilder target = new StringBuilder();
+        assertSame(target, fr.format(target, "FILES", "Disque", 3));
+        assertEquals("Disque a 3 fichiers.", target.toString());
+
+        try {
+            fr.format("MISSING");
+            fail();
+        } catch (MissingResourceException e) {
+            assertEquals("MISSING", e.getKey());
+        }
+    }
+
+    private static class ChainedBundle extends JsonResourceBundle {
+        ChainedBundle(String json) throws IOException {
+            super(new StringReader(json));
+        }
+
+        ChainedBundle(String json, boolean nestedKeys) throws IOException {
+            super(new StringReader(json), null, nestedKeys);
+        }
+
+        void chainTo(ResourceBundle parent) {
+            setParent(parent);
+        }
+    }
 
-}
\ No newline at end of file
+}
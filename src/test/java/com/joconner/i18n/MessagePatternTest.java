@@ -0,0 +1,159 @@
+package com.joconner.i18n;
+
+import org.junit.Test;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author joconner
+ */
+public class MessagePatternTest {
+
+    private static final String[] PATTERNS = {
+            "Hello world!",
+            "It''s {0}.",
+            "'{0}' is {0}",
+            "'quoted '' text' and {1} then {0}",
+            "{0} of {1} is {2}",
+            "Missing {3} and {0}",
+            "{0,number,#.##} and {0,number,integer} and {0,number,percent}",
+            "{1,date,short} {1,time,short} {1,date,yyyy-MM-dd}",
+            "There {2,choice,0#are no files|1#is one file|1<are {2,number,integer} files}.",
+            "{0}",
+            "no closing } brace",
+            "{ 0 }",
+            "",
+    };
+
+    private static final Object[] ARGUMENTS = {1234.5678, new Date(1500000000000L), 3};
+
+    @Test
+    public void formatsLikeMessageFormat() throws Exception {
+        for (Locale locale : new Locale[]{Locale.US, Locale.FRANCE, Locale.JAPAN}) {
+            for (String pattern : PATTERNS) {
+                String expected;
+                try {
+                    expected = new MessageFormat(pattern, locale).format(ARGUMENTS);
+                } catch (IllegalArgumentException e) {
+                    expected = null;
+                }
+                if (expected == null) {
+                    try {
+                        MessagePattern.compile(pattern, locale);
+                        fail("Expected an invalid pattern: " + pattern);
+                    } catch (IllegalArgumentException e) {
+                        // MessageFormat rejects the pattern too.
+                    }
+                    continue;
+                }
+                MessagePattern message = MessagePattern.compile(pattern, locale);
+                assertEquals(pattern, expected, message.format(new StringBuilder(), ARGUMENTS).toString());
+            }
+        }
+    }
+
+    @Test
+    public void formatsArgumentsWithoutFormatType() throws Exception {
+        Object[] arguments = {"text", 42, new Date(0), null, Locale.CANADA};
+        String pattern = "{0} {1} {2} {3} {4}";
+        assertEquals(new MessageFormat(pattern, Locale.GERMANY).format(arguments),
+                MessagePattern.compile(pattern, Locale.GERMANY).format(new StringBuilder(), arguments).toString());
+        assertEquals("{0} {1} {2} {3} {4}",
+                MessagePattern.compile(pattern, Locale.GERMANY).format(new StringBuilder(), null).toString());
+    }
+
+    @Test
+    public void literalPatterns() throws Exception {
+        MessagePattern message = MessagePattern.compile("It''s '{'literal'}'", Locale.US);
+        assertTrue(message.isLiteral());
+        assertEquals("It's {literal}", message.getLiteral());
+        assertFalse(MessagePattern.compile("{0}", Locale.US).isLiteral());
+    }
+
+    @Test
+    public void appendsToTarget() throws Exception {
+        StringBuilder target = new StringBuilder("> ");
+        assertSame(target, MessagePattern.compile("{0}!", Locale.US).format(target, new Object[]{"Hi"}));
+        assertEquals("> Hi!", target.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidPatterns() throws Exception {
+        MessagePattern.compile("{0,nonsense}", Locale.US);
+    }
+
+    @Test
+    public void formatsConcurrently() throws Exception {
+        final String pattern = "{0,number,#,##0.00} on {1,date,yyyy-MM-dd}: {2}, " +
+                "{2,choice,0#none|1#one|1<{2} on {1}}";
+        final MessagePattern message = MessagePattern.compile(pattern, Locale.US);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                final int thread = t;
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        StringBuilder target = new StringBuilder();
+                        for (int x = 0; x < 2000; x++) {
+                            Object[] arguments = {thread * 1000.0 + x, new Date(x * 86400000L * 31), x};
+                            target.setLength(0);
+                            message.format(target, arguments);
+                            if (!target.toString().equals(new MessageFormat(pattern, Locale.US).format(arguments))) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void compilesChoiceResultsOnce() throws Exception {
+        MessagePattern message = MessagePattern.compile("{0,choice,0#none|1<{0,number,integer} files}", Locale.US);
+        assertEquals("3 files", message.format(new StringBuilder(), new Object[]{3}).toString());
+        assertEquals("4 files", message.format(new StringBuilder(), new Object[]{4}).toString());
+        String choice = "{0,number,integer} files";
+        assertSame(message.choicePattern(choice), message.choicePattern(choice));
+    }
+
+    @Test
+    public void patternsWithoutFormatsKeepNoThreadState() throws Exception {
+        final List<Boolean> states = new ArrayList<>();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Object[] arguments = {"text", 2};
+                MessagePattern.compile("It''s plain", Locale.US).format(new StringBuilder(), arguments);
+                MessagePattern.compile("{0} and {1,choice,0#none|1#one|1<many}", Locale.US)
+                        .format(new StringBuilder(), arguments);
+                states.add(MessagePattern.hasThreadFormats());
+                MessagePattern.compile("{1}", Locale.US).format(new StringBuilder(), arguments);
+                states.add(MessagePattern.hasThreadFormats());
+            }
+        });
+        thread.start();
+        thread.join();
+        assertEquals(Arrays.asList(false, true), states);
+    }
+
+}
@@ -0,0 +1,267 @@
+package com.joconner.i18n;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author joconner
+ */
+public class PackageableResourceControlTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path writeBundle(String resourceName, String content) throws Exception {
+        Path file = folder.getRoot().toPath().resolve(resourceName);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    /**
+     * Counts the resources that the control asks for.
+     */
+    private static class CountingClassLoader extends ClassLoader {
+        int probes;
+
+        CountingClassLoader() {
+            super(PackageableResourceControlTest.class.getClassLoader());
+        }
+
+        @Override
+        public URL getResource(String name) {
+            probes++;
+            return super.getResource(name);
+        }
+
+        @Override
+        public InputStream getResourceAsStream(String name) {
+            probes++;
+            return super.getResourceAsStream(name);
+        }
+    }
+
+    @Test
+    public void toBundleNameIsCached() throws Exception {
+        JsonResourceBundleControl control = new JsonResourceBundleControl(true);
+        String bundleName = control.toBundleName("foo.bar.Message", Locale.CANADA_FRENCH);
+        assertEquals("foo.bar.fr-ca.Message", bundleName);
+        assertSame(bundleName, control.toBundleName("foo.bar.Message", Locale.CANADA_FRENCH));
+    }
+
+    @Test
+    public void missingResourcesAreProbedOnce() throws Exception {
+        JsonResourceBundleControl control = new JsonResourceBundleControl(true);
+        CountingClassLoader loader = new CountingClassLoader();
+        assertNull(control.newBundle("com.joconner.i18n.res.Test", Locale.FRENCH, "json", loader, false));
+        int probes = loader.probes;
+        assertTrue(probes > 0);
+        assertNull(control.newBundle("com.joconner.i18n.res.Test", Locale.FRENCH, "json", loader, false));
+        assertEquals(probes, loader.probes);
+
+        control.clearNameCache();
+        assertNull(control.newBundle("com.joconner.i18n.res.Test", Locale.FRENCH, "json", loader, false));
+        assertEquals(probes * 2, loader.probes);
+        assertNotNull(control.newBundle("com.joconner.i18n.res.Test", Locale.JAPANESE, "json", loader, false));
+    }
+
+    @Test
+    public void timeToLiveWithoutHotReload() throws Exception {
+        JsonResourceBundleControl control = new JsonResourceBundleControl(true);
+        assertEquals(ResourceBundle.Control.TTL_NO_EXPIRATION_CONTROL, control.getTimeToLive("foo", Locale.ROOT));
+    }
+
+    @Test
+    public void hotReloadReloadsChangedBundle() throws Exception {
+        writeBundle("res/Hot.json", "{\"GREETING_MORNING\": \"Good morning!\"}");
+        Path japanese = writeBundle("res/ja/Hot.json", "{\"GREETING_MORNING\": \"おはよう\"}");
+        ClassLoader loader = new URLClassLoader(new URL[]{folder.getRoot().toURI().toURL()}, null);
+        JsonResourceBundleControl control = new JsonResourceBundleControl(true);
+        control.setHotReload(true);
+        try {
+            assertEquals(0, control.getTimeToLive("res.Hot", Locale.JAPANESE));
+            ResourceBundle bundle = ResourceBundle.getBundle("res.Hot", Locale.JAPANESE, loader, control);
+            assertEquals("おはよう", bundle.getString("GREETING_MORNING"));
+            assertSame(bundle, ResourceBundle.getBundle("res.Hot", Locale.JAPANESE, loader, control));
+
+            Files.write(japanese, "{\"GREETING_MORNING\": \"おはようございます！\"}".getBytes(StandardCharsets.UTF_8));
+            ResourceBundle reloaded = bundle;
+            for (int x = 0; x < 200 && reloaded == bundle; x++) {
+                Thread.sleep(50);
+                reloaded = ResourceBundle.getBundle("res.Hot", Locale.JAPANESE, loader, control);
+            }
+            assertNotSame(bundle, reloaded);
+            assertEquals("おはようございます！", reloaded.getString("GREETING_MORNING"));
+        } finally {
+            control.setHotReload(false);
+        }
+    }
+
+    @Test
+    public void reloadExecutorServesStaleBundleUntilReloaded() throws Exception {
+        writeBundle("res/Hot.json", "{\"GREETING_MORNING\": \"Good morning!\"}");
+        Path japanese = writeBundle("res/ja/Hot.json", "{\"GREETING_MORNING\": \"おはよう\"}");
+        ClassLoader loader = new URLClassLoader(new URL[]{folder.getRoot().toURI().toURL()}, null);
+        final List<Runnable> tasks = new ArrayList<>();
+        JsonResourceBundleControl control = new JsonResourceBundleControl(true);
+        control.setHotReload(true);
+        control.setReloadExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        });
+        try {
+            ResourceBundle bundle = ResourceBundle.getBundle("res.Hot", Locale.JAPANESE, loader, control);
+            Files.write(japanese, "{\"GREETING_MORNING\": \"おはようございます！\"}".getBytes(StandardCharsets.UTF_8));
+            for (int x = 0; x < 200 && tasks.isEmpty(); x++) {
+                Thread.sleep(50);
+                assertSame(bundle, ResourceBundle.getBundle("res.Hot", Locale.JAPANESE, loader, control));
+            }
+            assertEquals(1, tasks.size());
+            for (int x = 0; x < 10; x++) {
+                assertSame(bundle, ResourceBundle.getBundle("res.Hot", Locale.JAPANESE, loader, control));
+            }
+            assertEquals(1, tasks.size());
+
+            tasks.get(0).run();
+            ResourceBundle reloaded = ResourceBundle.getBundle("res.Hot", Locale.JAPANESE, loader, control);
+            assertNotSame(bundle, reloaded);
+            assertEquals("おはようございます！", reloaded.getString("GREETING_MORNING"));
+            assertSame(reloaded, ResourceBundle.getBundle("res.Hot", Locale.JAPANESE, loader, control));
+            assertEquals(1, tasks.size());
+        } finally {
+            control.setHotReload(false);
+        }
+    }
+
+    @Test
+    public void changeAfterClaimedReloadIsNotLost() throws Exception {
+        writeBundle("res/Hot.json", "{\"GREETING_MORNING\": \"Good morning!\"}");
+        Path japanese = writeBundle("res/ja/Hot.json", "{\"GREETING_MORNING\": \"おはよう\"}");
+        ClassLoader loader = new URLClassLoader(new URL[]{folder.getRoot().toURI().toURL()}, null);
+        final List<Runnable> tasks = new ArrayList<>();
+        JsonResourceBundleControl control = new JsonResourceBundleControl(true);
+        control.setHotReload(true);
+        control.setReloadExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        });
+        try {
+            ResourceBundle bundle = ResourceBundle.getBundle("res.Hot", Locale.JAPANESE, loader, control);
+            Files.write(japanese, "{\"GREETING_MORNING\": \"おはようございます！\"}".getBytes(StandardCharsets.UTF_8));
+            for (int x = 0; x < 200 && tasks.isEmpty(); x++) {
+                Thread.sleep(50);
+                ResourceBundle.getBundle("res.Hot", Locale.JAPANESE, loader, control);
+            }
+            tasks.remove(0).run();
+            ResourceBundle reloaded = ResourceBundle.getBundle("res.Hot", Locale.JAPANESE, loader, control);
+            assertNotSame(bundle, reloaded);
+
+            // The file changes again after the reloaded bundle was swapped in, whatever its load time is.
+            Files.write(japanese, "{\"GREETING_MORNING\": \"こんにちは\"}".getBytes(StandardCharsets.UTF_8));
+            for (int x = 0; x < 200 && tasks.isEmpty(); x++) {
+                Thread.sleep(50);
+                assertFalse(control.needsReload("res.Hot", Locale.JAPANESE, "json", loader, reloaded,
+                        Long.MAX_VALUE));
+            }
+            assertEquals(1, tasks.size());
+            tasks.remove(0).run();
+            assertTrue(control.needsReload("res.Hot", Locale.JAPANESE, "json", loader, reloaded, Long.MAX_VALUE));
+            ResourceBundle latest = control.newBundle("res.Hot", Locale.JAPANESE, "json", loader, true);
+            assertEquals("こんにちは", latest.getString("GREETING_MORNING"));
+        } finally {
+            control.setHotReload(false);
+        }
+    }
+
+    @Test
+    public void changeIsNotLostToALaterLoadTime() throws Exception {
+        writeBundle("res/Hot.json", "{\"GREETING_MORNING\": \"Good morning!\"}");
+        Path japanese = writeBundle("res/ja/Hot.json", "{\"GREETING_MORNING\": \"おはよう\"}");
+        ClassLoader loader = new URLClassLoader(new URL[]{folder.getRoot().toURI().toURL()}, null);
+        JsonResourceBundleControl control = new JsonResourceBundleControl(true);
+        control.setHotReload(true);
+        try {
+            ResourceBundle bundle = control.newBundle("res.Hot", Locale.JAPANESE, "json", loader, false);
+            assertFalse(control.needsReload("res.Hot", Locale.JAPANESE, "json", loader, bundle, 0));
+
+            // ResourceBundle.getBundle may set the load time after the watcher saw a change of the file.
+            Files.write(japanese, "{\"GREETING_MORNING\": \"おはようございます！\"}".getBytes(StandardCharsets.UTF_8));
+            boolean changed = false;
+            for (int x = 0; x < 200 && !changed; x++) {
+                Thread.sleep(50);
+                changed = control.needsReload("res.Hot", Locale.JAPANESE, "json", loader, bundle, Long.MAX_VALUE);
+            }
+            assertTrue(changed);
+
+            ResourceBundle reloaded = control.newBundle("res.Hot", Locale.JAPANESE, "json", loader, true);
+            assertEquals("おはようございます！", reloaded.getString("GREETING_MORNING"));
+            assertFalse(control.needsReload("res.Hot", Locale.JAPANESE, "json", loader, reloaded, 0));
+        } finally {
+            control.setHotReload(false);
+        }
+    }
+
+    @Test
+    public void claimOfAFormatThatWasPassedOverIsDiscarded() throws Exception {
+        writeBundle("res/Hot.json", "{\"GREETING_MORNING\": \"Good morning!\"}");
+        Path japanese = writeBundle("res/ja/Hot.json", "{\"GREETING_MORNING\": \"おはよう\"}");
+        ClassLoader loader = new URLClassLoader(new URL[]{folder.getRoot().toURI().toURL()}, null);
+        final List<Runnable> tasks = new ArrayList<>();
+        JsonResourceBundleControl control = new JsonResourceBundleControl(true);
+        control.setUseCompiledBundles(true);
+        control.setHotReload(true);
+        control.setReloadExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        });
+        try {
+            ResourceBundle bundle = control.newBundle("res.Hot", Locale.JAPANESE, "json", loader, false);
+            Files.write(japanese, "{\"GREETING_MORNING\": \"おはようございます！\"}".getBytes(StandardCharsets.UTF_8));
+            for (int x = 0; x < 200 && tasks.isEmpty(); x++) {
+                Thread.sleep(50);
+                assertFalse(control.needsReload("res.Hot", Locale.JAPANESE, "json", loader, bundle, 0));
+            }
+            tasks.remove(0).run();
+            assertTrue(control.needsReload("res.Hot", Locale.JAPANESE, "json", loader, bundle, 0));
+
+            // A compiled bundle appeared, so ResourceBundle.getBundle stops at the erb format and never
+            // asks for the claimed JSON bundle.
+            Map<String, String> entries = new HashMap<>();
+            entries.put("GREETING_MORNING", "こんにちは");
+            BundleCompiler.write(entries, folder.getRoot().toPath().resolve("res/ja/Hot.erb"));
+            ResourceBundle compiled = control.newBundle("res.Hot", Locale.JAPANESE, "erb", loader, true);
+            assertEquals("こんにちは", compiled.getString("GREETING_MORNING"));
+
+            // Once the JSON bundle is read again, it's read from its file, not from the claimed reload.
+            Files.write(japanese, "{\"GREETING_MORNING\": \"こんばんは\"}".getBytes(StandardCharsets.UTF_8));
+            ResourceBundle reloaded = control.newBundle("res.Hot", Locale.JAPANESE, "json", loader, true);
+            assertEquals("こんばんは", reloaded.getString("GREETING_MORNING"));
+        } finally {
+            control.setHotReload(false);
+        }
+    }
+
+}
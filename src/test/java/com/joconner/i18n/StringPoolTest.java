@@ -0,0 +1,55 @@
+package com.joconner.i18n;
+
+import org.junit.Test;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Locale;
+import java.util.ResourceBundle;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author joconner
+ */
+public class StringPoolTest {
+
+    @Test
+    public void internReturnsPooledCopy() throws Exception {
+        StringPool pool = new StringPool();
+        String first = new String("Good morning!");
+        String second = new String("Good morning!");
+        assertSame(first, pool.intern(first));
+        assertSame(first, pool.intern(second));
+        assertSame(first, pool.intern(first));
+        assertNull(pool.intern(null));
+
+        assertEquals(3, pool.getLookups());
+        assertEquals(1, pool.getDuplicates());
+        assertEquals(StringPool.estimateSize(second), pool.getBytesSaved());
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void controlsShareThePool() throws Exception {
+        StringPool pool = new StringPool();
+        Utf8ResourceBundleControl utf8Control = new Utf8ResourceBundleControl(true);
+        utf8Control.setStringPool(pool);
+        JsonResourceBundleControl jsonControl = new JsonResourceBundleControl(true);
+        jsonControl.setStringPool(pool);
+
+        URL bundle = getClass().getResource("/com/joconner/i18n/res/Test.properties");
+        URL resources = new URL(bundle, "../../../../");
+        ResourceBundle utf8Bundle = ResourceBundle.getBundle("com.joconner.i18n.res.Utf8Resources", Locale.JAPANESE,
+                new URLClassLoader(new URL[]{resources}, null), utf8Control);
+        ResourceBundle jsonBundle = ResourceBundle.getBundle("com.joconner.i18n.res.Test", Locale.JAPANESE,
+                new URLClassLoader(new URL[]{resources}, null), jsonControl);
+
+        assertTrue(utf8Bundle instanceof Utf8PropertiesResourceBundle);
+        assertEquals("こんばんは！", utf8Bundle.getString("GREETING_NIGHT"));
+        assertSame(utf8Bundle.getString("GREETING_NIGHT"), jsonBundle.getString("GREETING_NIGHT"));
+        assertTrue(pool.getDuplicates() > 0);
+        assertTrue(pool.getBytesSaved() > 0);
+    }
+
+}
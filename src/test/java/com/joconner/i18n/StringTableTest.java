@@ -0,0 +1,51 @@
+package com.joconner.i18n;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author joconner
+ */
+public class StringTableTest {
+
+    @Test
+    public void getReturnsEveryEntry() throws Exception {
+        Map<String, String> entries = new HashMap<>();
+        for (int x = 0; x < 1000; x++) {
+            entries.put("KEY_" + x, "value " + x);
+        }
+        StringTable table = StringTable.of(entries);
+        assertEquals(1000, table.size());
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            assertEquals(entry.getValue(), table.get(entry.getKey()));
+        }
+        assertNull(table.get("KEY_1000"));
+    }
+
+    @Test
+    public void keysContainsEveryKey() throws Exception {
+        Map<String, String> entries = new HashMap<>();
+        entries.put("GREETING_MORNING", "Good morning!");
+        entries.put("GREETING_NIGHT", "Good evening!");
+        StringTable table = StringTable.of(entries);
+        Set<String> keys = new HashSet<>(Arrays.asList(table.keys()));
+        assertEquals(entries.keySet(), keys);
+    }
+
+    @Test
+    public void emptyTable() throws Exception {
+        StringTable table = StringTable.of(Collections.<String, String>emptyMap());
+        assertEquals(0, table.size());
+        assertNull(table.get("GREETING_MORNING"));
+        assertEquals(0, table.keys().length);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void nullValuesAreRejected() throws Exception {
+        StringTable.of(Collections.<String, String>singletonMap("GREETING_MORNING", null));
+    }
+
+}
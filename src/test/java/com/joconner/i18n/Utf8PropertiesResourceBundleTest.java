@@ -0,0 +1,100 @@
+package com.joconner.i18n;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.ResourceBundle;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author joconner
+ */
+public class Utf8PropertiesResourceBundleTest {
+
+    private static final String[] SAMPLES = {
+            "key=value\n",
+            "key = value\r\nkey2:value2\rkey3 value3",
+            "  # comment\n! another = comment\n\n   \t\nkey=value",
+            "# comment continues? \\\nkey=value",
+            "key = first line \\\n    second line \\\r\n\tthird line",
+            "key\\ with\\ spaces = value",
+            "key\\=equals\\:colon=value\\=",
+            "key==value\nkey2=:value\nkey3 = = value\nkey4 : value",
+            "tabs=a\\tb\\nc\\rd\\fe\\\\f\\qg",
+            "unicode=\\u00e9t\\u00E9 \\u65e5\\u672c",
+            "split=\\u00\\\n  e9",
+            "empty=\nnoSeparator\nwhitespaceOnly=   ",
+            "duplicate=first\nduplicate=second",
+            "trailing=backslash\\",
+            "even=backslashes\\\\\nnext=line",
+            "\\\nstartsWithContinuation=value",
+            "utf8=こんばんは！ 😀 café",
+            "key=value\\\n\nblank=after continuation",
+    };
+
+    @Test
+    public void matchesPropertiesLoad() throws Exception {
+        for (String sample : SAMPLES) {
+            Properties expected = new Properties();
+            expected.load(new StringReader(sample));
+
+            ResourceBundle fromBytes = new Utf8PropertiesResourceBundle(
+                    new ByteArrayInputStream(sample.getBytes(StandardCharsets.UTF_8)));
+            ResourceBundle fromReader = new Utf8PropertiesResourceBundle(new StringReader(sample));
+            for (ResourceBundle bundle : new ResourceBundle[]{fromBytes, fromReader}) {
+                assertEquals(sample, expected.stringPropertyNames(), bundle.keySet());
+                for (String key : expected.stringPropertyNames()) {
+                    assertEquals(sample, expected.getProperty(key), bundle.getString(key));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void decodesAcrossBufferBoundaries() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int x = 0; x < 2000; x++) {
+            text.append("key").append(x).append("=日本語 😀 ").append(x).append('\n');
+        }
+        ResourceBundle bundle = new Utf8PropertiesResourceBundle(
+                new ByteArrayInputStream(text.toString().getBytes(StandardCharsets.UTF_8)));
+        assertEquals(2000, bundle.keySet().size());
+        for (int x = 0; x < 2000; x++) {
+            assertEquals("日本語 😀 " + x, bundle.getString("key" + x));
+        }
+    }
+
+    @Test
+    public void resolve() throws Exception {
+        Utf8PropertiesResourceBundle bundle = new Utf8PropertiesResourceBundle(
+                new StringReader("greeting=Hello\nfarewell=Goodbye\n"));
+        String[] values = new String[3];
+        assertEquals(1, bundle.resolve(new String[]{"farewell", "missing", "greeting"}, values));
+        assertArrayEquals(new String[]{"Goodbye", null, "Hello"}, values);
+    }
+
+    @Test
+    public void skipsByteOrderMark() throws Exception {
+        ResourceBundle bundle = new Utf8PropertiesResourceBundle(
+                new ByteArrayInputStream("\uFEFFkey=value".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("value", bundle.getString("key"));
+    }
+
+    @Test
+    public void replacesMalformedBytes() throws Exception {
+        byte[] bytes = {'k', '=', 'a', (byte) 0xC3, 'b', (byte) 0xFF, 'c', (byte) 0xE6, (byte) 0x97};
+        ResourceBundle bundle = new Utf8PropertiesResourceBundle(new ByteArrayInputStream(bytes));
+        assertEquals("a\uFFFDb\uFFFDc\uFFFD", bundle.getString("k"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMalformedUnicodeEscape() throws IOException {
+        new Utf8PropertiesResourceBundle(new StringReader("key=\\u00g9"));
+    }
+
+}
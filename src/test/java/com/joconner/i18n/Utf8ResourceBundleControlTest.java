@@ -3,6 +3,8 @@ package com.joconner.i18n;
 
 import org.junit.Test;
 import static org.junit.Assert.*;
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.util.Locale;
 import java.util.ResourceBundle;
 
@@ -39,4 +41,20 @@ public class Utf8ResourceBundleControlTest {
         assertEquals("こんばんは！", hello);
     }
 
+    @Test
+    public void testFlattenFallbacks() throws Exception {
+        Utf8ResourceBundleControl utf8Control = new Utf8ResourceBundleControl(true);
+        utf8Control.setFlattenFallbacks(true);
+        URL resources = new URL(getClass().getResource("/com/joconner/i18n/res/Test.properties"), "../../../../");
+        ResourceBundle bundle = ResourceBundle.getBundle("com.joconner.i18n.res.Test", Locale.CANADA,
+                new URLClassLoader(new URL[]{resources}, null), utf8Control);
+        assertTrue(bundle instanceof Utf8PropertiesResourceBundle);
+        Utf8PropertiesResourceBundle flattened = (Utf8PropertiesResourceBundle) bundle;
+        assertEquals("It's morning, hoser!", flattened.handleGetObject("GREETING_MORNING"));
+        assertEquals("Good evening!", flattened.handleGetObject("GREETING_NIGHT"));
+        assertEquals("Good afternoon!", flattened.handleGetObject("GREETING_NOON"));
+        assertEquals(1, flattened.handleKeySet().size());
+        assertEquals(3, flattened.keySet().size());
+    }
+
 }
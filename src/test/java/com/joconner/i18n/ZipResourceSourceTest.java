@@ -0,0 +1,116 @@
+package com.joconner.i18n;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author joconner
+ */
+public class ZipResourceSourceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Writes an archive of resource names and contents, and moves it in place of the archive at path.
+     */
+    private Path writeArchive(Path path, String... entries) throws Exception {
+        Path written = folder.newFile().toPath();
+        try (OutputStream out = Files.newOutputStream(written);
+             ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (int x = 0; x < entries.length; x += 2) {
+                zip.putNextEntry(new ZipEntry(entries[x]));
+                zip.write(entries[x + 1].getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return Files.move(written, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Test
+    public void readsEntries() throws Exception {
+        Path archive = writeArchive(folder.getRoot().toPath().resolve("bundles.zip"),
+                "res/Foo.json", "{\"key\": \"value\"}");
+        try (ZipResourceSource source = new ZipResourceSource(archive)) {
+            ByteBuffer buffer = source.map("res/Foo.json", null);
+            assertEquals("{\"key\": \"value\"}".length(), buffer.remaining());
+            ResourceSource.Version version = source.version("res/Foo.json", null);
+            assertEquals(Files.size(archive), version.getSize());
+            assertNull(source.open("res/Bar.json", null));
+            assertNull(source.version("res/Bar.json", null));
+            assertNull(source.open("../bundles.zip", null));
+        }
+    }
+
+    @Test
+    public void missingArchiveHasNoResources() throws Exception {
+        try (ZipResourceSource source = new ZipResourceSource(folder.getRoot().toPath().resolve("none.zip"))) {
+            assertNull(source.open("res/Foo.json", null));
+            assertNull(source.version("res/Foo.json", null));
+        }
+    }
+
+    @Test
+    public void controlReloadsReplacedArchive() throws Exception {
+        Path archive = writeArchive(folder.getRoot().toPath().resolve("bundles.zip"),
+                "res/Foo.json", "{\"GREETING_MORNING\": \"Good morning!\"}",
+                "res/fr/Foo.json", "{\"GREETING_MORNING\": \"Bonjour\"}");
+        ClassLoader loader = new URLClassLoader(new URL[0], null);
+        JsonResourceBundleControl control = new JsonResourceBundleControl(true);
+        try (ZipResourceSource source = new ZipResourceSource(archive)) {
+            control.setResourceSource(source);
+            control.setHotReload(true);
+            ResourceBundle bundle = ResourceBundle.getBundle("res.Foo", Locale.FRENCH, loader, control);
+            assertEquals("Bonjour", bundle.getString("GREETING_MORNING"));
+            assertSame(bundle, ResourceBundle.getBundle("res.Foo", Locale.FRENCH, loader, control));
+
+            writeArchive(archive,
+                    "res/Foo.json", "{\"GREETING_MORNING\": \"Good morning!\"}",
+                    "res/fr/Foo.json", "{\"GREETING_MORNING\": \"Bonjour !\"}");
+            ResourceBundle reloaded = ResourceBundle.getBundle("res.Foo", Locale.FRENCH, loader, control);
+            assertNotSame(bundle, reloaded);
+            assertEquals("Bonjour !", reloaded.getString("GREETING_MORNING"));
+        } finally {
+            control.setHotReload(false);
+        }
+    }
+
+    @Test
+    public void replacedArchiveStaysOpenForItsReaders() throws Exception {
+        Path archive = writeArchive(folder.getRoot().toPath().resolve("bundles.zip"),
+                "res/Foo.json", "{\"key\": \"old\"}");
+        try (ZipResourceSource source = new ZipResourceSource(archive)) {
+            try (InputStream in = source.open("res/Foo.json", null)) {
+                writeArchive(archive, "res/Foo.json", "{\"key\": \"new value\"}");
+                assertEquals("{\"key\": \"new value\"}".length(), source.map("res/Foo.json", null).remaining());
+
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[64];
+                for (int read; (read = in.read(buffer)) >= 0; ) {
+                    out.write(buffer, 0, read);
+                }
+                assertEquals("{\"key\": \"old\"}", new String(out.toByteArray(), StandardCharsets.UTF_8));
+            }
+            assertNotNull(source.version("res/Foo.json", null));
+        }
+    }
+
+}